@@ -30,7 +30,7 @@ public class LocalPanel extends JPanel{
     public LocalPanel(){
         super();
         LPC = new LocalPanelConfig();
-        w = new Weather();
+        w = Weather.empty(Weather.WeatherType.LOCAL);
         pref = new Preferences();
         name = "";
     }
@@ -43,11 +43,23 @@ public class LocalPanel extends JPanel{
      * and the preferred temperature units
      */
     public LocalPanel(LocationWeather locW, Preferences p){
+        this(locW.toString(), locW.getLocal(), p);
+    }
+
+    /**
+     * Creates a new panel that will display the given local weather, such as
+     * the weather of a snapshot, so that it matches the forecasts shown with it
+     * @param n The name of the location
+     * @param weather The local weather to display
+     * @param p A preference object that governs what information is hidden/shown 
+     * and the preferred temperature units
+     */
+    public LocalPanel(String n, Weather weather, Preferences p){
         super();
         
         this.LPC = new LocalPanelConfig();
-        this.w = locW.getLocal();
-        this.name = locW.toString();
+        this.w = weather;
+        this.name = n;
         this.pref = p;
     
         //Set up panel parameters
@@ -295,7 +307,7 @@ public class LocalPanel extends JPanel{
         result.setBackground(LPC.BGCOLOR);
         
         //Set icon
-        Image img = w.icon.getImage();
+        Image img = w.getIcon().getImage();
         int size = LPC.ICONSIZE;
         img = img.getScaledInstance(size, size, Image.SCALE_SMOOTH);
         JLabel lblIcon = new JLabel(new ImageIcon(img));
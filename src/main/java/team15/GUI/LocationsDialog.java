@@ -13,11 +13,9 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
 import java.util.ArrayList;
-import java.util.TreeMap;
+import java.util.List;
+import java.util.function.BiConsumer;
 
 import javax.swing.DefaultComboBoxModel;
 import javax.swing.DefaultListModel;
@@ -31,10 +29,16 @@ import javax.swing.JList;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.ListSelectionModel;
+import javax.swing.JTextField;
 import javax.swing.SpringLayout;
+import javax.swing.SwingUtilities;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 
 import team15.UserOjects.Flag;
 import team15.UserOjects.Location;
+import team15.UserOjects.LocationIndex;
+import team15.UserOjects.LocationSearch;
 import team15.UserOjects.User;
 
 import java.awt.Color;
@@ -50,6 +54,9 @@ public class LocationsDialog extends JDialog{
     //Combo boxes
     private JComboBox<Location> cmbLocation;
     private JComboBox<String> country;
+
+    //Search field
+    private final JTextField search;
     
     //User
     private final User user;
@@ -57,11 +64,17 @@ public class LocationsDialog extends JDialog{
     //Dimension
     private final Dimension dim;
     
-    //List of all possible locations
-    private static TreeMap<String, ArrayList<Location>> loc;
+    //Index of all possible locations, null until it is loaded
+    private LocationIndex loc;
+
+    //Search over all possible locations, null until it is built
+    private LocationSearch finder;
+
+    //List of flags, null until they are loaded
+    private List<Flag> flags;
 
-    //List of flags
-    private static ArrayList<Flag> flags;
+    //Text shown while the locations are loading
+    private final static String LOADING = "Loading locations...";
 
     //Colour
     public final Color BGCOLOR = new Color(210, 229, 243); 
@@ -79,14 +92,11 @@ public class LocationsDialog extends JDialog{
         
         this.user = u;
         
-        //Load the list of all locations if necessary
-        if(loc == null) loadLocations();
-        
         //Set the dialog parameters
         final JPanel panel = new JPanel();
         this.setResizable(false);
         this.getContentPane().add(panel);
-	dim = new Dimension (500,450);
+	dim = new Dimension (500,490);
         this.setSize(dim);
         this.setLocation(200, 200);
         panel.setBackground(BGCOLOR);
@@ -152,6 +162,23 @@ public class LocationsDialog extends JDialog{
 	    (SpringLayout.NORTH, set, 20, SpringLayout.SOUTH, cur);
         panel.add(set);
         
+        //Search label
+        JLabel lblSearch = new JLabel("Search: ");
+        lblSearch.setForeground(this.txtC);
+        layout.putConstraint
+	    (SpringLayout.WEST, lblSearch, 20, SpringLayout.WEST, panel);
+        layout.putConstraint
+	    (SpringLayout.NORTH, lblSearch, 30, SpringLayout.SOUTH, add);
+        panel.add(lblSearch);
+
+        //Search field
+        search = new JTextField(20);
+        layout.putConstraint
+	    (SpringLayout.WEST, search, 90, SpringLayout.WEST, panel);
+        layout.putConstraint
+	    (SpringLayout.NORTH, search, 26, SpringLayout.SOUTH, add);
+        panel.add(search);
+
         //Combo box labels
         //Coutry Label
         JLabel lblCountry = new JLabel("Country: ");
@@ -159,7 +186,7 @@ public class LocationsDialog extends JDialog{
         layout.putConstraint
 	    (SpringLayout.WEST, lblCountry, 20, SpringLayout.WEST, panel);
         layout.putConstraint
-	    (SpringLayout.NORTH, lblCountry, 30, SpringLayout.SOUTH, add);
+	    (SpringLayout.NORTH, lblCountry, 20, SpringLayout.SOUTH, lblSearch);
         panel.add(lblCountry);
         
         //Location label
@@ -174,14 +201,14 @@ public class LocationsDialog extends JDialog{
 	panel.add(ok);
 
         //Combo boxes
-        country = new JComboBox(loc.keySet().toArray());
-        cmbLocation = new JComboBox();
+        country = new JComboBox<>();
+        cmbLocation = new JComboBox<>();
         
         //Country combo box
         layout.putConstraint
 	    (SpringLayout.WEST, country, 90, SpringLayout.WEST, panel);
         layout.putConstraint
-	    (SpringLayout.NORTH, country, 24, SpringLayout.SOUTH, add);
+	    (SpringLayout.NORTH, country, -6, SpringLayout.NORTH, lblCountry);
         
         //Location combo box
         layout.putConstraint
@@ -215,25 +242,36 @@ public class LocationsDialog extends JDialog{
 	flagIcon.setPreferredSize(new Dimension(80,50));
 	panel.add(flagIcon);
 
-	//Load the flags from resources
-	loadFlags();
-
 	//Add an action listener for updating the country combo box
-	//and change the flag when a new country is selected
+	//and change the flag when a new country is selected. The search is
+	//cleared so that it does not disagree with the locations shown,
+	//which fills the combo box with the locations of the country.
         country.addActionListener(new ActionListener(){
 		public void actionPerformed(ActionEvent event){
-		    String curCountry 
-			= country.getItemAt(country.getSelectedIndex());
-		    Object[] curLocations = loc.get(curCountry).toArray();
-		    DefaultComboBoxModel<Location> locModel 
-			= new DefaultComboBoxModel(curLocations);
-		    cmbLocation.setModel(locModel);
-		    setFlagIcon(curCountry);
+		    if(!search.getText().isEmpty()) search.setText("");
+		    else showMatches();
+		    setFlagIcon(country.getItemAt(country.getSelectedIndex()));
 		}    
 	    });
         
-        //Set the current country to Canada
-        country.setSelectedItem("CANADA");
+	//Fill the location combo box with the best matches as the user types
+	//in the search field
+	search.getDocument().addDocumentListener(new DocumentListener(){
+		public void insertUpdate(DocumentEvent event){
+		    showMatches();
+		}
+
+		public void removeUpdate(DocumentEvent event){
+		    showMatches();
+		}
+
+		public void changedUpdate(DocumentEvent event){
+		    showMatches();
+		}
+	    });
+
+	//Fill in the locations and flags once they are loaded
+	waitForData();
         
         //Button action listeners
         //Remove button
@@ -320,6 +358,28 @@ public class LocationsDialog extends JDialog{
         error.setText("");
     }
     
+    /**
+     * Fills the location combo box with the locations that best match the
+     * text of the search field, or with the locations of the selected
+     * country if the search field is empty
+     */
+    private void showMatches(){
+        String text = search.getText();
+        if(text.trim().isEmpty()){
+            String curCountry = country.getItemAt(country.getSelectedIndex());
+            cmbLocation.setModel(new DefaultComboBoxModel<>(
+                    loc.getLocations(curCountry).toArray(new Location[0])));
+            cmbLocation.hidePopup();
+            return;
+        }
+
+        Location[] matches = finder.find(text).toArray(new Location[0]);
+        cmbLocation.setModel(new DefaultComboBoxModel<>(matches));
+        if(matches.length > 0 && cmbLocation.isShowing())
+            cmbLocation.showPopup();
+        else cmbLocation.hidePopup();
+    }
+
     /**
      * Sets the flagIcon to the flag image of the currenty country selected
      * in the country combobox.  If the country can not be found in the list
@@ -327,6 +387,10 @@ public class LocationsDialog extends JDialog{
      * @param curCountry The country flag to set the flag icon to
      */
     private void setFlagIcon(String curCountry){
+	if(flags == null || flags.isEmpty() || curCountry == null){
+	    this.flagIcon.setIcon(null);
+	    return;
+	}
     	StringBuilder builder = new StringBuilder();
 	curCountry = curCountry.toLowerCase();
 	builder.append(Character.toUpperCase(curCountry.charAt(0)));
@@ -371,6 +435,7 @@ public class LocationsDialog extends JDialog{
         if(l == null){
             error.setForeground(Color.RED);        
             error.setText("Error: Please select a location to add.");
+            return;
         }
         
         //Check to see if the location is already in the location list
@@ -456,61 +521,76 @@ public class LocationsDialog extends JDialog{
     }
     
     /**
-     * Loads the list of all valid openweather locations from the locations data file
+     * Fills in the countries, the search and the flags as soon as the
+     * startup loader has them, showing that the locations are loading until
+     * then. Anything already loaded is filled in at once.
+     * @see StartupLoader
      */
-    private void loadLocations(){
-        //Try to open the city list text file
-        try{
-            InputStream fi = 
-		ArrayList.class.getResourceAsStream("/locations.dat");
-            ObjectInputStream in = new ObjectInputStream(fi);
-            ArrayList<Location> locList = (ArrayList) in.readObject();
-            
-            ArrayList<Location> cntLoc = new ArrayList();
-            String cnt = "";
-            
-            loc = new TreeMap();
-            
-            for(Location l: locList){
-                if(cnt.isEmpty()) cnt = l.getCountry();
-                
-                if(!cnt.equals(l.getCountry())){ 
-                    loc.put(cnt, cntLoc);
-                    cntLoc = new ArrayList();
-                    cnt = l.getCountry();
-                }
-                cntLoc.add(l);
-            }
-        }
-        catch(Exception ex){
-            System.out.println("Fatal error loading locations.dat");
-            System.exit(1);
-        }
+    private void waitForData(){
+        StartupLoader loader = StartupLoader.getDefault();
+        country.setEnabled(false);
+        cmbLocation.setEnabled(false);
+        search.setEnabled(false);
+        error.setForeground(this.txtC);
+        error.setText(LOADING);
+
+        //Countries
+        loader.getIndex().whenComplete(new BiConsumer<LocationIndex, Throwable>(){
+		public void accept(final LocationIndex index, Throwable ex){
+		    onEventThread(new Runnable(){
+			    public void run(){
+				if(index == null){
+				    System.out.println("Fatal error loading locations.idx");
+				    System.exit(1);
+				}
+				loc = index;
+				country.setModel(new DefaultComboBoxModel<String>(
+							    loc.getCountries()));
+				country.setEnabled(true);
+				cmbLocation.setEnabled(true);
+				if(LOADING.equals(error.getText())) error.setText("");
+
+				//Set the current country to Canada
+				country.setSelectedItem("CANADA");
+			    }
+			});
+		}
+	    });
+
+        //Search, left disabled if it can not be built
+        loader.getSearch().whenComplete(new BiConsumer<LocationSearch, Throwable>(){
+		public void accept(final LocationSearch s, Throwable ex){
+		    if(s == null) return;
+		    onEventThread(new Runnable(){
+			    public void run(){
+				finder = s;
+				search.setEnabled(true);
+			    }
+			});
+		}
+	    });
+
+        //Flags, none are shown if they can not be read
+        loader.getFlags().whenComplete(new BiConsumer<List<Flag>, Throwable>(){
+		public void accept(final List<Flag> f, Throwable ex){
+		    onEventThread(new Runnable(){
+			    public void run(){
+				flags = (f == null)?new ArrayList<Flag>():f;
+				setFlagIcon(country.getItemAt(
+						    country.getSelectedIndex()));
+			    }
+			});
+		}
+	    });
     }
-    @SuppressWarnings("unchecked")
 
     /**
-     * Loads the list of all flags from the flags data file
+     * Runs a task on the event dispatch thread, straight away if this is
+     * the event dispatch thread
+     * @param r the task to run
      */
-    private void loadFlags(){
-
-    	InputStream fi = 
-	    ArrayList.class.getResourceAsStream("/flags.dat");
-        ObjectInputStream in = null;
-        
-        flags = new ArrayList<Flag>();
-	try {
-	    in = new ObjectInputStream(fi);
-	} catch (IOException e1) {
-	    // TODO Auto-generated catch block
-	    e1.printStackTrace();
-	}
-        try {
-	    flags = (ArrayList<Flag>) in.readObject();
-	} catch (ClassNotFoundException e1) {
-	    e1.printStackTrace();
-	} catch (IOException e1) {
-	    e1.printStackTrace();
-	}
+    private static void onEventThread(Runnable r){
+        if(SwingUtilities.isEventDispatchThread()) r.run();
+        else SwingUtilities.invokeLater(r);
     }
 }
@@ -10,7 +10,6 @@ import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.SpringLayout;
 import team15.WeatherObjects.Forecast;
-import team15.WeatherObjects.Weather;
 
 
 public class LongTermPanel extends JPanel{
@@ -62,10 +61,10 @@ public class LongTermPanel extends JPanel{
     /**
      * A method for creating a small panel that contains the weather data for
      * a particular time.
-     * @param w a weather object that contains the data to be displayed in the panel
+     * @param w a forecast entry that contains the data to be displayed in the panel
      * @return a formatted JPanel containing the weather for a particular time
      */
-    private JPanel makeCard(Weather w){
+    private JPanel makeCard(Forecast.Entry w){
         JPanel result = new JPanel();
         SpringLayout layout = new SpringLayout();
         result.setBackground(bgC);
@@ -85,7 +84,7 @@ public class LongTermPanel extends JPanel{
         layout.putConstraint(SpringLayout.NORTH, temp, 13, SpringLayout.SOUTH, date);
         result.add(temp);
         
-        JLabel icon = new JLabel(w.icon);
+        JLabel icon = new JLabel(w.getIcon());
 	layout.putConstraint(SpringLayout.WEST, icon, 5, SpringLayout.EAST, temp);
         layout.putConstraint(SpringLayout.EAST, icon, 0, SpringLayout.EAST, result);
         layout.putConstraint(SpringLayout.NORTH, icon, 0, SpringLayout.SOUTH, date);
@@ -32,8 +32,13 @@ import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JPanel;
 import javax.swing.SpringLayout;
+import javax.swing.SwingUtilities;
+import team15.JSON.HTTPClient;
 import team15.UserOjects.User;
+import team15.WeatherObjects.CacheManager;
 import team15.WeatherObjects.LocationWeather;
+import team15.WeatherObjects.LocationWeatherCache;
+import team15.WeatherObjects.WeatherSnapshot;
 
 public class OpenWeatherGUI extends JFrame{
     //User variable
@@ -130,10 +135,31 @@ public class OpenWeatherGUI extends JFrame{
     /**
      * Updates each panel with the most recent weather data, forecast data, 
      * location data and preferences.
+     * 
+     * The data that is already cached is shown straight away.  If it is out
+     * of date it is refreshed in the background and the panels are updated
+     * again when the new data arrives.
      */
     private void updatePanels(){
-        String refresh = locWeather.getRefresh();
-        String error = locWeather.updateForecasts();
+        final LocationWeather shown = locWeather;
+        WeatherSnapshot snap = shown.read(new LocationWeather.Listener(){
+            public void updated(final WeatherSnapshot fresh){
+                SwingUtilities.invokeLater(new Runnable(){
+                    public void run(){
+                        //Ignore the data if the location has been changed
+                        if(locWeather == shown) showSnapshot(fresh);
+                    }
+                });
+            }
+        });
+        showSnapshot(snap);
+    }
+    
+    /**
+     * Rebuilds each panel with the data of the given snapshot
+     * @param snap the weather data to display
+     */
+    private void showSnapshot(WeatherSnapshot snap){
         if(view != null) this.remove(view);
         
         this.setTitle(locWeather.toString());
@@ -143,11 +169,12 @@ public class OpenWeatherGUI extends JFrame{
 
         boolean units = user.pref.tempUnits;
         
-        JPanel local = new LocalPanel(locWeather, user.pref);
-        JPanel shortTerm = new ShortTermPanel(locWeather.getShortTerm(), units);
-        JPanel longTerm = new LongTermPanel(locWeather.getLongTerm(), units);
+        JPanel local = new LocalPanel(snap.getSource().toString(), 
+                                      snap.getLocal(), user.pref);
+        JPanel shortTerm = new ShortTermPanel(snap.getShortTerm(), units);
+        JPanel longTerm = new LongTermPanel(snap.getLongTerm(), units);
         
-        JLabel lblRef = new JLabel("LATEST UPDATE: " + locWeather.getRefresh().substring(0,16));
+        JLabel lblRef = new JLabel("LATEST UPDATE: " + snap.getRefresh());
         lblRef.setForeground(new Color(1, 61, 134));
         lblRef.setFont(new Font("Tahoma", Font.PLAIN, 8));
         //JLabel ref = new JLabel();
@@ -198,7 +225,8 @@ public class OpenWeatherGUI extends JFrame{
     private void startLoactionDialog(){
         LocationsDialog window = new LocationsDialog(user);
         window.dispose();
-        locWeather = new LocationWeather(user.getCurrentLocation());
+        locWeather = LocationWeatherCache.getDefault()
+                                        .get(user.getCurrentLocation());
     }
     
     /**
@@ -211,6 +239,13 @@ public class OpenWeatherGUI extends JFrame{
     public static void main(String args[]){
         user = null;
         
+        //Keep connections to OpenWeather alive for the requests that follow
+        HTTPClient.keepAlive();
+        
+        //Load the locations and flags in the background while the user is
+        //loaded and the weather is fetched
+        StartupLoader.getDefault().start();
+        
         //Make sure the cache folder exists, and if not create it.
         try{
             File cache = new File("WeatherCache");
@@ -221,6 +256,9 @@ public class OpenWeatherGUI extends JFrame{
             System.exit(1);
         }
         
+        //Drop old cache entries in the background
+        CacheManager.getDefault().startCompaction();
+        
         //Try to load the previously saved user file from user.dat
         try {
             user = User.loadUser();
@@ -250,7 +288,8 @@ public class OpenWeatherGUI extends JFrame{
             }
         }
 
-        locWeather = new LocationWeather(user.getCurrentLocation());
+        locWeather = LocationWeatherCache.getDefault()
+                                        .get(user.getCurrentLocation());
         new OpenWeatherGUI();
     }
 }
@@ -8,7 +8,6 @@ import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.SpringLayout;
 import team15.WeatherObjects.Forecast;
-import team15.WeatherObjects.Weather;
 
 /**
  * A panel that will be used to display the short term data in the OpenWeatherGUI.
@@ -65,10 +64,10 @@ public class ShortTermPanel extends JPanel{
     /**
      * A method for creating a small panel that contains the weather data for
      * a particular instance of time.
-     * @param w a weather object that contains the data to be displayed in the panel
+     * @param w a forecast entry that contains the data to be displayed in the panel
      * @return a Jpanel containing the weather data for a particular time.
      */
-    private JPanel makeCard(Weather w){
+    private JPanel makeCard(Forecast.Entry w){
         JPanel result = new JPanel();
         SpringLayout layout = new SpringLayout();
         result.setBackground(bgC);
@@ -88,7 +87,7 @@ public class ShortTermPanel extends JPanel{
         layout.putConstraint(SpringLayout.NORTH, temp, 3, SpringLayout.SOUTH, date);
         result.add(temp);
         
-        Image img = w.icon.getImage();
+        Image img = w.getIcon().getImage();
         img = img.getScaledInstance(25, 25, Image.SCALE_SMOOTH);
         JLabel icon = new JLabel(new ImageIcon(img));
         layout.putConstraint(SpringLayout.WEST, icon, 2, SpringLayout.EAST, temp);
@@ -0,0 +1,171 @@
+package team15.GUI;
+
+/**
+ * Loads the data the locations dialog needs on background threads, so that
+ * it is ready by the time the user opens the dialog.
+ *
+ * Loading is started when the program starts, at the same time as the user
+ * file is loaded and the weather is fetched.  The location index is mapped,
+ * then the search over every location is built, and the flags are read at
+ * the same time.  Each is held in a future that the dialog waits on,
+ * showing that it is loading until the data is ready.
+ *
+ * @author team15
+ */
+
+//Imports
+import java.io.BufferedInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import team15.UserOjects.Flag;
+import team15.UserOjects.LocationIndex;
+import team15.UserOjects.LocationSearch;
+
+public class StartupLoader{
+    //Resource that holds the flags
+    public final static String FLAGS = "/flags.dat";
+
+    private static StartupLoader shared;
+
+    private final ExecutorService executor;
+
+    //Data being loaded, null until loading is started
+    private CompletableFuture<LocationIndex> index;
+    private CompletableFuture<LocationSearch> search;
+    private CompletableFuture<List<Flag>> flags;
+
+    /**
+     * Creates a loader with two daemon threads, one for the locations and
+     * one for the flags
+     */
+    private StartupLoader(){
+        executor = Executors.newFixedThreadPool(2, new ThreadFactory(){
+            public Thread newThread(Runnable r){
+                Thread t = new Thread(r, "startup-loader");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Returns the loader of the program
+     * @return the shared loader
+     */
+    public static synchronized StartupLoader getDefault(){
+        if(shared == null) shared = new StartupLoader();
+        return shared;
+    }
+
+    /**
+     * Starts loading the locations and the flags in the background. Does
+     * nothing if loading has already been started.
+     */
+    public synchronized void start(){
+        if(index != null) return;
+
+        index = CompletableFuture.supplyAsync(new Supplier<LocationIndex>(){
+            public LocationIndex get(){
+                try{
+                    return LocationIndex.getDefault();
+                }
+                catch(Exception ex){
+                    throw new CompletionException(ex);
+                }
+            }
+        }, executor);
+
+        search = index.thenApplyAsync(new Function<LocationIndex, LocationSearch>(){
+            public LocationSearch apply(LocationIndex i){
+                try{
+                    return LocationSearch.getDefault();
+                }
+                catch(Exception ex){
+                    throw new CompletionException(ex);
+                }
+            }
+        }, executor);
+
+        flags = CompletableFuture.supplyAsync(new Supplier<List<Flag>>(){
+            public List<Flag> get(){
+                try{
+                    return loadFlags();
+                }
+                catch(Exception ex){
+                    throw new CompletionException(ex);
+                }
+            }
+        }, executor);
+    }
+
+    /**
+     * Returns the location index, starting to load it if it is not loading
+     * already
+     * @return a future that completes with the index, or with the error
+     * that stopped it from being mapped
+     */
+    public synchronized CompletableFuture<LocationIndex> getIndex(){
+        start();
+        return index;
+    }
+
+    /**
+     * Returns the search over every location, starting to build it if it is
+     * not being built already
+     * @return a future that completes with the search, or with the error
+     * that stopped it from being built
+     */
+    public synchronized CompletableFuture<LocationSearch> getSearch(){
+        start();
+        return search;
+    }
+
+    /**
+     * Returns the flags, starting to load them if they are not loading
+     * already
+     * @return a future that completes with the flags, or with the error that
+     * stopped them from being read
+     */
+    public synchronized CompletableFuture<List<Flag>> getFlags(){
+        start();
+        return flags;
+    }
+
+    /**
+     * Returns true if everything has finished loading, or failed to
+     * @return true if the index, search and flags are all done
+     */
+    public synchronized boolean isDone(){
+        return index != null && index.isDone() && search.isDone()
+                && flags.isDone();
+    }
+
+    /**
+     * Reads the list of all flags from the flags data file
+     * @return the flags
+     * @throws Exception thrown if the file can not be found or read
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Flag> loadFlags() throws Exception{
+        InputStream fi = StartupLoader.class.getResourceAsStream(FLAGS);
+        if(fi == null) throw new FileNotFoundException(FLAGS);
+
+        ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(fi));
+        try{
+            return (ArrayList<Flag>) in.readObject();
+        }
+        finally{
+            in.close();
+        }
+    }
+}
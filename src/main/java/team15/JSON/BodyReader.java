@@ -0,0 +1,201 @@
+package team15.JSON;
+
+/**
+ * A reader that decodes a UTF-8 response body straight from its byte stream.
+ * The byte and char buffers it reads through are taken from a shared pool and
+ * returned when the reader is closed, and reading fails once more than a
+ * maximum number of bytes have been read from the body.
+ *
+ * The reader supports mark and reset as long as the mark is not pushed out of
+ * its buffer, so JSONTokener uses it directly rather than wrapping it in
+ * another buffered reader.
+ *
+ * @author team15
+ */
+
+//Imports
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+public class BodyReader extends Reader{
+    //Largest body that will be read by default, in bytes
+    public final static long MAX_BODY = 1024 * 1024;
+
+    private final InputStream in;
+    private final long maxBody;
+    private final CharsetDecoder decoder;
+
+    //Pooled buffers
+    private byte[] byteArray;
+    private char[] chars;
+    private ByteBuffer bytes;
+
+    //Position of the next char, end of the decoded chars and the mark
+    private int pos, lim, mark;
+
+    //Number of bytes read from the body
+    private long total;
+    private boolean eof;
+
+    /**
+     * Creates a new reader for the given body with the default size limit
+     * @param body the stream containing the body
+     */
+    public BodyReader(InputStream body){
+        this(body, MAX_BODY);
+    }
+
+    /**
+     * Creates a new reader for the given body
+     * @param body the stream containing the body
+     * @param max the maximum number of bytes that may be read from the body
+     */
+    public BodyReader(InputStream body, long max){
+        in = body;
+        maxBody = max;
+        decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        byteArray = BufferPool.takeBytes();
+        chars = BufferPool.takeChars();
+        bytes = ByteBuffer.wrap(byteArray);
+        bytes.limit(0);
+
+        pos = 0;
+        lim = 0;
+        mark = -1;
+        total = 0;
+        eof = false;
+    }
+
+    /**
+     * Reads a single character
+     * @return the character read, or -1 at the end of the body
+     * @throws IOException thrown if there is a problem reading the body or the
+     * body is too large
+     */
+    public int read() throws IOException{
+        if(pos >= lim && !fill()) return -1;
+        return chars[pos++];
+    }
+
+    /**
+     * Reads characters into part of an array
+     * @param dst the destination array
+     * @param off the offset to start storing characters at
+     * @param len the maximum number of characters to read
+     * @return the number of characters read, or -1 at the end of the body
+     * @throws IOException thrown if there is a problem reading the body or the
+     * body is too large
+     */
+    public int read(char[] dst, int off, int len) throws IOException{
+        if(len == 0) return 0;
+        if(pos >= lim && !fill()) return -1;
+
+        int n = Math.min(len, lim - pos);
+        System.arraycopy(chars, pos, dst, off, n);
+        pos += n;
+        return n;
+    }
+
+    /**
+     * Marks the current position so that reset() can return to it
+     * @param readAheadLimit the number of characters that may be read before
+     * the mark is lost
+     * @throws IOException thrown if the limit is larger than the buffer
+     */
+    public void mark(int readAheadLimit) throws IOException{
+        if(readAheadLimit > chars.length)
+            throw new IOException("Mark limit larger than the buffer");
+        mark = pos;
+    }
+
+    /**
+     * Returns to the last mark
+     * @throws IOException thrown if there is no mark or it has been lost
+     */
+    public void reset() throws IOException{
+        if(mark < 0) throw new IOException("Mark invalid");
+        pos = mark;
+    }
+
+    /**
+     * This reader supports mark and reset
+     * @return true
+     */
+    public boolean markSupported(){
+        return true;
+    }
+
+    /**
+     * Returns the buffers to the pool. The body stream itself is left open
+     * for its owner to close.
+     */
+    public void close(){
+        if(chars == null) return;
+        BufferPool.give(byteArray);
+        BufferPool.give(chars);
+        byteArray = null;
+        chars = null;
+        bytes = null;
+    }
+
+    /**
+     * Decodes more of the body into the char buffer
+     * @return false if the end of the body has been reached
+     * @throws IOException thrown if there is a problem reading the body or the
+     * body is too large
+     */
+    private boolean fill() throws IOException{
+        if(chars == null) throw new IOException("Reader closed");
+
+        //Keep the chars after the mark if there is room, otherwise drop them
+        int keep = (mark >= 0)?mark:lim;
+        if(keep == 0 && lim == chars.length) mark = -1;
+        else if(keep > 0){
+            System.arraycopy(chars, keep, chars, 0, lim - keep);
+            pos -= keep;
+            lim -= keep;
+            if(mark >= 0) mark = 0;
+        }
+        if(mark < 0){
+            pos = 0;
+            lim = 0;
+        }
+
+        CharBuffer out = CharBuffer.wrap(chars, lim, chars.length - lim);
+        while(out.position() == lim){
+            if(eof && !bytes.hasRemaining()){
+                decoder.flush(out);
+                break;
+            }
+
+            //Read more bytes from the body if the decoder needs them
+            if(!eof){
+                bytes.compact();
+                int n = in.read(byteArray, bytes.position(), bytes.remaining());
+                if(n < 0) eof = true;
+                else{
+                    total += n;
+                    if(total > maxBody)
+                        throw new IOException("Response body larger than "
+                                                        + maxBody + " bytes");
+                    bytes.position(bytes.position() + n);
+                }
+                bytes.flip();
+            }
+
+            decoder.decode(bytes, out, eof);
+        }
+
+        lim = out.position();
+        return pos < lim;
+    }
+}
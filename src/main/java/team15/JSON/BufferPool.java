@@ -0,0 +1,62 @@
+package team15.JSON;
+
+/**
+ * A small pool of read buffers that are shared by the http client and the
+ * readers built on top of it, so that each request does not allocate its own.
+ *
+ * @author team15
+ */
+
+//Imports
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+class BufferPool{
+    //Size of each buffer and the number of idle buffers kept
+    final static int SIZE = 8192;
+    private final static int MAX_IDLE = 16;
+
+    private final static ConcurrentLinkedQueue<byte[]> bytes
+                                            = new ConcurrentLinkedQueue<>();
+    private final static ConcurrentLinkedQueue<char[]> chars
+                                            = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Takes a byte buffer from the pool, or makes a new one if the pool is
+     * empty
+     * @return a byte buffer of length SIZE
+     */
+    static byte[] takeBytes(){
+        byte[] b = bytes.poll();
+        return (b == null)?new byte[SIZE]:b;
+    }
+
+    /**
+     * Takes a char buffer from the pool, or makes a new one if the pool is
+     * empty
+     * @return a char buffer of length SIZE
+     */
+    static char[] takeChars(){
+        char[] c = chars.poll();
+        return (c == null)?new char[SIZE]:c;
+    }
+
+    /**
+     * Returns a byte buffer to the pool. The buffer must not be used by the
+     * caller after it has been returned.
+     * @param b the buffer to return
+     */
+    static void give(byte[] b){
+        if(b != null && b.length == SIZE && bytes.size() < MAX_IDLE)
+            bytes.offer(b);
+    }
+
+    /**
+     * Returns a char buffer to the pool. The buffer must not be used by the
+     * caller after it has been returned.
+     * @param c the buffer to return
+     */
+    static void give(char[] c){
+        if(c != null && c.length == SIZE && chars.size() < MAX_IDLE)
+            chars.offer(c);
+    }
+}
@@ -0,0 +1,271 @@
+package team15.JSON;
+
+/**
+ * Optional Deflate compression of the files and records the program saves.
+ *
+ * Compressed data starts with a short header: three magic bytes followed by
+ * the Adler-32 checksum of the preset dictionary it was compressed with, or
+ * 0 if it had none.  Readers look for the header, so data that was saved
+ * uncompressed, before compression was turned on, is still read as it is.
+ * A preset dictionary holds strings that are likely to appear in the data,
+ * such as class and field names, so that even short data compresses well.
+ *
+ * Compression is turned on with the system property team15.compress=true,
+ * or with setEnabled().
+ *
+ * @author team15
+ */
+
+//Imports
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+public final class Compression{
+    //System property that turns compression on
+    public final static String PROPERTY = "team15.compress";
+
+    //First bytes of compressed data
+    private final static byte[] MAGIC = {(byte) 0xD5, 'Z', 'L'};
+    private final static int HEADER = MAGIC.length + 4;
+
+    private static volatile boolean enabled = Boolean.getBoolean(PROPERTY);
+
+    /**
+     * Blocks objects from being made
+     */
+    private Compression(){}
+
+    /**
+     * Returns true if data should be compressed when it is saved
+     * @return true if compression is turned on
+     */
+    public static boolean isEnabled(){
+        return enabled;
+    }
+
+    /**
+     * Turns compression of saved data on or off. Data is read whether it was
+     * compressed or not.
+     * @param on true to compress saved data
+     */
+    public static void setEnabled(boolean on){
+        enabled = on;
+    }
+
+    /**
+     * Returns true if the given data starts with the compressed header
+     * @param data the data
+     * @return true if the data is compressed
+     */
+    public static boolean isCompressed(byte[] data){
+        if(data.length < HEADER) return false;
+        for(int i = 0; i < MAGIC.length; i++){
+            if(data[i] != MAGIC[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Compresses the given data
+     * @param data the data to compress
+     * @param dictionary the preset dictionary, or null
+     * @return the compressed data, with its header
+     */
+    public static byte[] compress(byte[] data, byte[] dictionary){
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2);
+        out.write(header(dictionary), 0, HEADER);
+
+        Deflater d = deflater(dictionary);
+        byte[] buffer = BufferPool.takeBytes();
+        try{
+            d.setInput(data);
+            d.finish();
+            while(!d.finished()){
+                out.write(buffer, 0, d.deflate(buffer));
+            }
+        }
+        finally{
+            BufferPool.give(buffer);
+            d.end();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decompresses the given data. Data without the compressed header is
+     * returned as it is.
+     * @param data the data to decompress
+     * @param dictionary the preset dictionary it was compressed with, or null
+     * @return the decompressed data
+     * @throws IOException thrown if the data is not valid or was compressed
+     * with a different dictionary
+     */
+    public static byte[] decompress(byte[] data, byte[] dictionary)
+                                                            throws IOException{
+        if(!isCompressed(data)) return data;
+        checkDictionary(readInt(data, MAGIC.length), dictionary);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 3);
+        Inflater inf = inflater(dictionary);
+        byte[] buffer = BufferPool.takeBytes();
+        try{
+            inf.setInput(data, HEADER, data.length - HEADER);
+            while(!inf.finished()){
+                int n = inf.inflate(buffer);
+                if(n == 0 && (inf.needsInput() || inf.needsDictionary()))
+                    throw new IOException("Compressed data is cut off");
+                out.write(buffer, 0, n);
+            }
+        }
+        catch(DataFormatException ex){
+            throw new IOException("Compressed data is not valid", ex);
+        }
+        finally{
+            BufferPool.give(buffer);
+            inf.end();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Wraps a stream so that what is written to it is compressed. The header
+     * is written at once. Closing the returned stream closes the given one.
+     * @param out the stream to write the compressed data to
+     * @param dictionary the preset dictionary, or null
+     * @return the stream to write the data to
+     * @throws IOException thrown if the header can not be written
+     */
+    public static OutputStream compress(OutputStream out, byte[] dictionary)
+                                                            throws IOException{
+        out.write(header(dictionary));
+
+        final Deflater d = deflater(dictionary);
+        return new DeflaterOutputStream(out, d, BufferPool.SIZE){
+            public void close() throws IOException{
+                try{
+                    super.close();
+                }
+                finally{
+                    d.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Wraps a stream so that it is decompressed if it starts with the
+     * compressed header, or read as it is if it does not. Closing the
+     * returned stream closes the given one.
+     * @param in the stream to read
+     * @param dictionary the preset dictionary the data was compressed with,
+     * or null
+     * @return the stream to read the data from
+     * @throws IOException thrown if the stream can not be read or was
+     * compressed with a different dictionary
+     */
+    public static InputStream decompress(InputStream in, byte[] dictionary)
+                                                            throws IOException{
+        PushbackInputStream peek = new PushbackInputStream(in, HEADER);
+        byte[] header = new byte[HEADER];
+        int n = 0, r;
+        while(n < HEADER && (r = peek.read(header, n, HEADER - n)) != -1) n += r;
+
+        if(n < HEADER || !isCompressed(header)){
+            peek.unread(header, 0, n);
+            return peek;
+        }
+        checkDictionary(readInt(header, MAGIC.length), dictionary);
+
+        final Inflater inf = inflater(dictionary);
+        return new InflaterInputStream(peek, inf, BufferPool.SIZE){
+            public void close() throws IOException{
+                try{
+                    super.close();
+                }
+                finally{
+                    inf.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Makes a raw deflater primed with the given dictionary
+     * @param dictionary the preset dictionary, or null
+     * @return the deflater
+     */
+    private static Deflater deflater(byte[] dictionary){
+        Deflater d = new Deflater(Deflater.BEST_COMPRESSION, true);
+        if(dictionary != null) d.setDictionary(dictionary);
+        return d;
+    }
+
+    /**
+     * Makes a raw inflater primed with the given dictionary
+     * @param dictionary the preset dictionary, or null
+     * @return the inflater
+     */
+    private static Inflater inflater(byte[] dictionary){
+        Inflater inf = new Inflater(true);
+        if(dictionary != null) inf.setDictionary(dictionary);
+        return inf;
+    }
+
+    /**
+     * Checks that data was compressed with the given dictionary
+     * @param expected the checksum read from the header of the data
+     * @param dictionary the dictionary that will be used to read it
+     * @throws IOException thrown if the dictionaries are not the same
+     */
+    private static void checkDictionary(int expected, byte[] dictionary)
+                                                            throws IOException{
+        if(expected != checksum(dictionary))
+            throw new IOException("Data was compressed with another dictionary");
+    }
+
+    /**
+     * Returns the Adler-32 checksum of a dictionary
+     * @param dictionary the dictionary, or null
+     * @return the checksum, or 0 if there is no dictionary
+     */
+    private static int checksum(byte[] dictionary){
+        if(dictionary == null) return 0;
+        Adler32 a = new Adler32();
+        a.update(dictionary);
+        return (int) a.getValue();
+    }
+
+    /**
+     * Returns the header of data compressed with the given dictionary
+     * @param dictionary the dictionary, or null
+     * @return the magic bytes followed by the big endian checksum of the
+     * dictionary
+     */
+    private static byte[] header(byte[] dictionary){
+        byte[] h = new byte[HEADER];
+        System.arraycopy(MAGIC, 0, h, 0, MAGIC.length);
+        int v = checksum(dictionary);
+        for(int i = 0; i < 4; i++) h[MAGIC.length + i] = (byte) (v >>> (24 - 8*i));
+        return h;
+    }
+
+    /**
+     * Reads a big endian int from an array
+     * @param b the array
+     * @param at the offset of the int
+     * @return the value
+     */
+    private static int readInt(byte[] b, int at){
+        return (b[at] & 0xFF) << 24 | (b[at + 1] & 0xFF) << 16
+                | (b[at + 2] & 0xFF) << 8 | (b[at + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,168 @@
+package team15.JSON;
+
+/**
+ * A shared http client for the requests made to OpenWeather. Connections are
+ * kept alive and reused between requests, the number of requests open to one
+ * host at a time is limited, every request has a connect and read timeout and
+ * responses are requested gzip compressed.
+ *
+ * @author team15
+ */
+
+//Imports
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public class HTTPClient{
+    //Default settings
+    public final static int CONNECT_TIMEOUT = 5000;
+    public final static int READ_TIMEOUT = 10000;
+    public final static int MAX_PER_HOST = 4;
+
+    //Client used by URLToJSON and the weather objects
+    private static volatile HTTPClient shared = new HTTPClient();
+
+    //Connection settings
+    private final int connectTimeout, readTimeout, maxPerHost;
+
+    //Open request permits for each host
+    private final ConcurrentHashMap<String, Semaphore> hosts;
+
+    /**
+     * Creates a client with the default timeouts and host limit
+     */
+    public HTTPClient(){
+        this(CONNECT_TIMEOUT, READ_TIMEOUT, MAX_PER_HOST);
+    }
+
+    /**
+     * Creates a client with the given timeouts and host limit
+     * @param connect the connect timeout in milliseconds
+     * @param read the read timeout in milliseconds
+     * @param perHost the maximum number of requests open to one host at a time
+     */
+    public HTTPClient(int connect, int read, int perHost){
+        connectTimeout = connect;
+        readTimeout = read;
+        maxPerHost = perHost;
+        hosts = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Sets how many idle connections the JDK keeps alive for reuse to each
+     * host to MAX_PER_HOST, unless it was set on the command line. This is
+     * the http.maxConnections system property, which applies to the whole
+     * JVM and is only read when the first connection is made, so it is set
+     * once by the main method of the program before any request.
+     */
+    public static void keepAlive(){
+        if(System.getProperty("http.maxConnections") == null)
+            System.setProperty("http.maxConnections",
+                               String.valueOf(MAX_PER_HOST));
+    }
+
+    /**
+     * Returns the client shared by the program
+     * @return the shared http client
+     */
+    public static HTTPClient getDefault(){
+        return shared;
+    }
+
+    /**
+     * Replaces the client shared by the program
+     * @param client the new shared http client
+     */
+    public static void setDefault(HTTPClient client){
+        shared = client;
+    }
+
+    /**
+     * Makes a GET request to the given url. The response must be closed once
+     * its body has been read so that the connection can be reused.
+     * @param url the target url
+     * @return the response to the request
+     * @throws IOException thrown if the request can not be made, times out or
+     * the server responds with an error status
+     */
+    public HTTPResponse get(String url) throws IOException{
+        return get(url, null);
+    }
+
+    /**
+     * Makes a GET request to the given url with extra request headers, for
+     * example If-None-Match.  A 304 Not Modified status is not an error, its
+     * response has an empty body.  The response must be closed once its body
+     * has been read so that the connection can be reused.
+     * @param url the target url
+     * @param headers the extra request headers by name, or null
+     * @return the response to the request
+     * @throws IOException thrown if the request can not be made, times out or
+     * the server responds with an error status
+     */
+    public HTTPResponse get(String url, Map<String, String> headers)
+                                                            throws IOException{
+        URL target = new URL(url);
+        Semaphore permit = acquire(target);
+        HTTPResponse response = null;
+
+        try{
+            HttpURLConnection con = (HttpURLConnection) target.openConnection();
+            con.setConnectTimeout(connectTimeout);
+            con.setReadTimeout(readTimeout);
+            con.setRequestProperty("Accept-Encoding", "gzip");
+            if(headers != null){
+                for(Map.Entry<String, String> h: headers.entrySet())
+                    con.setRequestProperty(h.getKey(), h.getValue());
+            }
+
+            int status = con.getResponseCode();
+            if(status >= 400){
+                //Read the error body so that the connection can be reused
+                if(!HTTPResponse.drain(con.getErrorStream())) con.disconnect();
+                throw new IOException("HTTP " + status + " from " + url);
+            }
+
+            response = new HTTPResponse(con, permit);
+            return response;
+        }
+        finally{
+            //The response releases the permit when it is closed
+            if(response == null) permit.release();
+        }
+    }
+
+    /**
+     * Waits for a free request permit for the host of the given url
+     * @param target the url that will be requested
+     * @return the permit that was acquired
+     * @throws IOException thrown if no permit becomes free before the connect
+     * timeout
+     */
+    private Semaphore acquire(URL target) throws IOException{
+        String host = target.getHost() + ":" + target.getPort();
+        Semaphore permit = hosts.get(host);
+        if(permit == null){
+            hosts.putIfAbsent(host, new Semaphore(maxPerHost, true));
+            permit = hosts.get(host);
+        }
+
+        try{
+            if(!permit.tryAcquire(connectTimeout, TimeUnit.MILLISECONDS))
+                throw new SocketTimeoutException(
+                          "Timed out waiting for a connection to " + host);
+        }
+        catch(InterruptedException ex){
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for " + host);
+        }
+        return permit;
+    }
+}
@@ -0,0 +1,118 @@
+package team15.JSON;
+
+/**
+ * A response to a request made by the HTTPClient. The body is decompressed if
+ * the server sent it gzip compressed. Closing the response reads whatever is
+ * left of the body so that the connection can be kept alive and reused.
+ *
+ * @author team15
+ */
+
+//Imports
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPInputStream;
+
+public class HTTPResponse implements Closeable{
+    //Most bytes read from an unfinished body to keep its connection alive
+    private final static int DRAIN_LIMIT = 64 * 1024;
+
+    private final HttpURLConnection con;
+    private final InputStream raw;
+    private final InputStream body;
+    private Semaphore permit;
+
+    /**
+     * Creates a new response for the given open connection
+     * @param c the connection the response was received on
+     * @param p the host permit to release once the response is closed
+     * @throws IOException thrown if the body can not be opened
+     */
+    HTTPResponse(HttpURLConnection c, Semaphore p) throws IOException{
+        con = c;
+        permit = p;
+        raw = (c.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED)?
+                new ByteArrayInputStream(new byte[0]):c.getInputStream();
+
+        if("gzip".equalsIgnoreCase(c.getContentEncoding()))
+            body = new GZIPInputStream(raw, BufferPool.SIZE);
+        else body = raw;
+    }
+
+    /**
+     * Returns the http status code of the response
+     * @return the http status code
+     * @throws IOException thrown if the status can not be read
+     */
+    public int getStatus() throws IOException{
+        return con.getResponseCode();
+    }
+
+    /**
+     * Returns the value of the given response header
+     * @param name the name of the header
+     * @return the value of the header or null if it was not sent
+     */
+    public String getHeader(String name){
+        return con.getHeaderField(name);
+    }
+
+    /**
+     * Returns the decompressed body of the response
+     * @return a stream containing the body of the response
+     */
+    public InputStream getBody(){
+        return body;
+    }
+
+    /**
+     * Reads the rest of the body and closes it, returning the connection to
+     * the pool of connections that can be reused. If too much of the body is
+     * left the connection is dropped instead. A gzip body is closed after
+     * that, which frees its Inflater without touching the connection.
+     * @throws IOException thrown if there is a problem reading the body
+     */
+    public void close() throws IOException{
+        if(permit == null) return;
+
+        try{
+            //The raw stream is read to its end first, closing the gzip
+            //stream before that would close the connection instead
+            if(!drain(raw)) con.disconnect();
+        }
+        finally{
+            try{
+                if(body != raw) body.close();
+            }
+            finally{
+                permit.release();
+                permit = null;
+            }
+        }
+    }
+
+    /**
+     * Reads a stream to its end, up to a limit, and closes it
+     * @param in the stream to read, may be null
+     * @return true if the end of the stream was reached
+     * @throws IOException thrown if there is a problem reading the stream
+     */
+    static boolean drain(InputStream in) throws IOException{
+        if(in == null) return true;
+
+        byte[] buffer = BufferPool.takeBytes();
+        try{
+            int n = 0, read = 0;
+            while(read <= DRAIN_LIMIT && (n = in.read(buffer)) != -1) read += n;
+            return n == -1;
+        }
+        finally{
+            BufferPool.give(buffer);
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package team15.JSON;
+
+/**
+ * Reads the values at a fixed set of key paths from a JSON document in a
+ * single pass, without building the JSON objects. Everything that is not on
+ * one of the paths is skipped as it is read.
+ *
+ * Key paths are followed in the same way as KeyPath.resolve(), so when a path
+ * reaches an array the first element of the array is used.
+ *
+ * An extractor can also read the same paths from each element of an array
+ * held at the top of the document (for example the "list" of a forecast).
+ *
+ * Values are returned as the text of the JSON value. Missing keys, null
+ * values and keys whose values are objects or arrays are returned as null.
+ *
+ * @author team15
+ */
+
+//Imports
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.json.JSONException;
+
+public class JSONExtractor{
+    private final Node root;
+    private final int numKeys;
+    private final int maxRows;
+    private final boolean listMode;
+
+    /**
+     * A step in the tree of key paths
+     */
+    private static class Node{
+        final String name;
+        final ArrayList<Node> children = new ArrayList<>();
+        int slot = -1;
+        boolean list = false;
+
+        Node(String n){
+            name = n;
+        }
+
+        /**
+         * Returns the child with the given name
+         * @param key the buffer holding the name
+         * @param len the length of the name
+         * @return the child node or null if there is none
+         */
+        Node child(char[] key, int len){
+            for(Node c: children){
+                if(c.name.length() != len) continue;
+                int i = 0;
+                while(i < len && c.name.charAt(i) == key[i]) i++;
+                if(i == len) return c;
+            }
+            return null;
+        }
+
+        /**
+         * Returns the child with the given name, adding it if it is missing
+         * @param n the name of the child
+         * @return the child node
+         */
+        Node add(String n){
+            for(Node c: children){
+                if(c.name.equals(n)) return c;
+            }
+            Node c = new Node(n);
+            children.add(c);
+            return c;
+        }
+    }
+
+    /**
+     * Creates an extractor for the given key paths at the top of the document
+     * @param keys the key paths to read
+     */
+    public JSONExtractor(KeyPath[] keys){
+        root = new Node("");
+        addKeys(root, keys);
+        numKeys = keys.length;
+        maxRows = 1;
+        listMode = false;
+    }
+
+    /**
+     * Creates an extractor for the given key paths in each element of an
+     * array at the top of the document
+     * @param list the key of the array
+     * @param keys the key paths to read from each element of the array
+     * @param max the maximum number of elements to read
+     */
+    public JSONExtractor(String list, KeyPath[] keys, int max){
+        root = new Node("");
+        Node elements = root.add(list);
+        elements.list = true;
+        addKeys(elements, keys);
+        numKeys = keys.length;
+        maxRows = max;
+        listMode = true;
+    }
+
+    /**
+     * Reads the values of the key paths from the given document
+     * @param in a reader containing the JSON document
+     * @return the values of the key paths, one row for each element of the
+     * array for a list extractor, or a single row otherwise. The values in
+     * each row are in the same order as the keys.
+     * @throws IOException thrown if there is a problem reading the document
+     * @throws JSONException thrown if the document is not valid JSON
+     */
+    public String[][] extract(Reader in) throws IOException, JSONException{
+        Parser p = new Parser(in);
+        p.value(root, 0);
+        if(listMode) return p.rows.toArray(new String[p.rows.size()][]);
+        return new String[][]{p.row(0)};
+    }
+
+    /**
+     * Adds the given key paths to the tree under the given node
+     * @param parent the node to add the paths to
+     * @param keys the key paths
+     */
+    private static void addKeys(Node parent, KeyPath[] keys){
+        for(int i = 0; i < keys.length; i++){
+            Node n = parent;
+            for(int j = 0; j < keys[i].length(); j++) n = n.add(keys[i].step(j));
+            n.slot = i;
+        }
+    }
+
+    /**
+     * The state of one pass over a document
+     */
+    private class Parser{
+        private final Reader in;
+        private final ArrayList<String[]> rows = new ArrayList<>();
+        private final StringBuilder text = new StringBuilder();
+        private char[] key = new char[32];
+        private int next = -2;
+
+        Parser(Reader r){
+            in = r;
+        }
+
+        /**
+         * Returns the given row, adding rows as needed
+         */
+        String[] row(int i){
+            while(rows.size() <= i) rows.add(new String[numKeys]);
+            return rows.get(i);
+        }
+
+        /**
+         * Reads a value, keeping it if it is on a key path
+         * @param node the node for the value or null if it is skipped
+         * @param r the row the value belongs to
+         */
+        void value(Node node, int r) throws IOException{
+            int c = clean();
+            if(c == '{') object(node, r);
+            else if(c == '[') array(node, r);
+            else if(c == '"'){
+                String s = string(node != null && node.slot >= 0);
+                if(s != null) row(r)[node.slot] = s;
+            }
+            else{
+                back(c);
+                String s = literal(node != null && node.slot >= 0);
+                if(s != null && !s.equals("null")) row(r)[node.slot] = s;
+            }
+        }
+
+        /**
+         * Reads an object after its opening brace
+         */
+        void object(Node node, int r) throws IOException{
+            int c = clean();
+            if(c == '}') return;
+            back(c);
+
+            while(true){
+                if(clean() != '"') throw error("Expected a key");
+                int len = key(node != null && !node.children.isEmpty());
+                if(clean() != ':') throw error("Expected ':' after a key");
+
+                Node child = (node == null || len < 0)?null:node.child(key, len);
+                value(child, r);
+
+                c = clean();
+                if(c == '}') return;
+                if(c != ',') throw error("Expected ',' or '}'");
+            }
+        }
+
+        /**
+         * Reads an array after its opening bracket. The first element follows
+         * the key path, unless this is the list the rows are read from.
+         */
+        void array(Node node, int r) throws IOException{
+            int c = clean();
+            if(c == ']') return;
+            back(c);
+
+            boolean list = node != null && node.list;
+            for(int i = 0; ; i++){
+                if(list && i < maxRows){
+                    row(i);
+                    value(node, i);
+                }
+                else if(list) value(null, r);
+                else value((i == 0)?node:null, r);
+
+                c = clean();
+                if(c == ']') return;
+                if(c != ',') throw error("Expected ',' or ']'");
+            }
+        }
+
+        /**
+         * Reads a key into the key buffer after its opening quote
+         * @param keep false if the key does not need to be kept
+         * @return the length of the key, or -1 if it was not kept
+         */
+        int key(boolean keep) throws IOException{
+            int len = 0;
+            while(true){
+                int c = read();
+                if(c == '"') return keep?len:-1;
+                if(c == '\\') c = escape();
+                if(!keep) continue;
+                if(len == key.length) key = Arrays.copyOf(key, len * 2);
+                key[len++] = (char) c;
+            }
+        }
+
+        /**
+         * Reads a string after its opening quote
+         * @param keep false if the string does not need to be kept
+         * @return the string, or null if it was not kept
+         */
+        String string(boolean keep) throws IOException{
+            text.setLength(0);
+            while(true){
+                int c = read();
+                if(c == '"') return keep?text.toString():null;
+                if(c == '\\') c = escape();
+                if(keep) text.append((char) c);
+            }
+        }
+
+        /**
+         * Reads a number, true, false or null
+         * @param keep false if the text does not need to be kept
+         * @return the text of the value, or null if it was not kept
+         */
+        String literal(boolean keep) throws IOException{
+            text.setLength(0);
+            int c = next;
+            next = -2;
+            while(true){
+                if(c == -2) c = in.read();
+                if(c == -1 || c == ',' || c == '}' || c == ']' || c <= ' '){
+                    back(c);
+                    break;
+                }
+                if(keep) text.append((char) c);
+                c = -2;
+            }
+            if(keep && text.length() == 0) throw error("Expected a value");
+            return keep?text.toString():null;
+        }
+
+        /**
+         * Reads the rest of an escape sequence after its backslash
+         * @return the escaped character
+         */
+        int escape() throws IOException{
+            int c = read();
+            switch(c){
+                case 'b': return '\b';
+                case 't': return '\t';
+                case 'n': return '\n';
+                case 'f': return '\f';
+                case 'r': return '\r';
+                case 'u':
+                    int u = 0;
+                    for(int i = 0; i < 4; i++){
+                        int h = Character.digit(read(), 16);
+                        if(h < 0) throw error("Illegal escape");
+                        u = (u << 4) | h;
+                    }
+                    return u;
+                default: return c;
+            }
+        }
+
+        /**
+         * Returns the next character that is not white space
+         */
+        int clean() throws IOException{
+            int c;
+            if(next != -2){
+                c = next;
+                next = -2;
+                if(c > ' ') return c;
+            }
+            do{
+                c = in.read();
+            } while(c != -1 && c <= ' ');
+            if(c == -1) throw error("Unexpected end of document");
+            return c;
+        }
+
+        /**
+         * Returns the next character inside a string
+         */
+        int read() throws IOException{
+            int c = in.read();
+            if(c == -1) throw error("Unterminated string");
+            return c;
+        }
+
+        /**
+         * Pushes back a character so that clean() returns it next
+         */
+        void back(int c){
+            next = c;
+        }
+
+        JSONException error(String message){
+            return new JSONException(message);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package team15.JSON;
+
+/**
+ * A key path that has been split into its steps once so that it can be
+ * followed through many JSON objects without parsing the key again.
+ *
+ * Key paths are the names of nested keys joined with "-", for example
+ * "main-temp". When a step reaches an array the first element of the array
+ * is used, so "weather-description" follows the first entry of the weather
+ * array.
+ *
+ * @author team15
+ */
+
+//Imports
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+public final class KeyPath{
+    private final String key;
+    private final String[] steps;
+
+    /**
+     * Creates a new key path
+     * @param k the key path string
+     */
+    private KeyPath(String k){
+        key = k;
+        steps = k.split("-");
+    }
+
+    /**
+     * Compiles the given key path
+     * @param key the key path string
+     * @return the compiled key path
+     */
+    public static KeyPath compile(String key){
+        return new KeyPath(key);
+    }
+
+    /**
+     * Compiles each of the given key paths
+     * @param keys the key path strings
+     * @return the compiled key paths in the same order
+     */
+    public static KeyPath[] compile(String[] keys){
+        KeyPath[] result = new KeyPath[keys.length];
+        for(int i = 0; i < keys.length; i++) result[i] = new KeyPath(keys[i]);
+        return result;
+    }
+
+    /**
+     * Returns the number of steps in the path
+     * @return the number of steps
+     */
+    public int length(){
+        return steps.length;
+    }
+
+    /**
+     * Returns the key of the given step
+     * @param i the index of the step
+     * @return the key of the step
+     */
+    public String step(int i){
+        return steps[i];
+    }
+
+    /**
+     * Follows the path through the given object
+     * @param json the object to start at
+     * @return the value at the end of the path, or null if any step is
+     * missing or the value is null
+     */
+    public Object resolve(JSONObject json){
+        Object cur = json;
+        for(String step: steps){
+            if(cur instanceof JSONArray) cur = ((JSONArray) cur).opt(0);
+            if(!(cur instanceof JSONObject)) return null;
+            cur = ((JSONObject) cur).opt(step);
+        }
+        return (cur == JSONObject.NULL)?null:cur;
+    }
+
+    /**
+     * Returns the key path string
+     * @return the key path string
+     */
+    public String toString(){
+        return key;
+    }
+}
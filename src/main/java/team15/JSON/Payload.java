@@ -0,0 +1,321 @@
+package team15.JSON;
+
+/**
+ * The body of a response read into memory, together with the response
+ * headers that say how long it stays fresh and the validators (ETag and
+ * Last-Modified) used to ask the server if it has changed.  The body can be
+ * read by a JSONExtractor as many times as needed after the connection is
+ * closed, and can be checked with scan() without being parsed.
+ *
+ * @author team15
+ */
+
+//Imports
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.json.JSONException;
+
+public final class Payload{
+    //Value of a lifetime that the server did not give
+    public final static long NO_LIFETIME = -1;
+
+    private final int status;
+    private final byte[] body;
+    private final long lifetime;
+    private final String etag, lastModified;
+
+    /**
+     * Creates a new payload
+     * @param s the http status code
+     * @param b the body
+     * @param life the time in milliseconds the server says the body stays
+     * fresh for, or NO_LIFETIME
+     * @param tag the ETag of the response, or null
+     * @param modified the Last-Modified date of the response, or null
+     */
+    Payload(int s, byte[] b, long life, String tag, String modified){
+        status = s;
+        body = b;
+        lifetime = life;
+        etag = tag;
+        lastModified = modified;
+    }
+
+    /**
+     * Reads the body of the given response into a payload. The response is
+     * not closed.
+     * @param r the response
+     * @param max the maximum number of bytes the body may have
+     * @return the payload of the response
+     * @throws IOException thrown if the body can not be read or is larger
+     * than max
+     */
+    public static Payload read(HTTPResponse r, long max) throws IOException{
+        InputStream in = r.getBody();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = BufferPool.takeBytes();
+        try{
+            int n;
+            while((n = in.read(buffer)) != -1){
+                if(out.size() + n > max)
+                    throw new IOException("Response body is larger than "
+                                                    + max + " bytes");
+                out.write(buffer, 0, n);
+            }
+        }
+        finally{
+            BufferPool.give(buffer);
+        }
+
+        return new Payload(r.getStatus(), out.toByteArray(), lifetime(r),
+                           r.getHeader("ETag"), r.getHeader("Last-Modified"));
+    }
+
+    /**
+     * Returns the http status code of the response
+     * @return the http status code
+     */
+    public int getStatus(){
+        return status;
+    }
+
+    /**
+     * Returns true if the server said the data has not changed since the
+     * validators sent with the request. The body is empty.
+     * @return true for a 304 Not Modified response
+     */
+    public boolean isNotModified(){
+        return status == HttpURLConnection.HTTP_NOT_MODIFIED;
+    }
+
+    /**
+     * Returns the ETag of the response
+     * @return the ETag, or null if the server did not send one
+     */
+    public String getETag(){
+        return etag;
+    }
+
+    /**
+     * Returns the Last-Modified date of the response
+     * @return the date as it was sent, or null if the server did not send one
+     */
+    public String getLastModified(){
+        return lastModified;
+    }
+
+    /**
+     * Returns the number of bytes in the body
+     * @return the size of the body
+     */
+    public int size(){
+        return body.length;
+    }
+
+    /**
+     * Returns the time the server says the body stays fresh for, taken from
+     * the Cache-Control max-age or, if there is none, from the Expires
+     * header
+     * @return the lifetime in milliseconds, 0 if the server says the body
+     * must not be reused, or NO_LIFETIME if the server did not say
+     */
+    public long getLifetime(){
+        return lifetime;
+    }
+
+    /**
+     * Returns a 64 bit FNV-1a hash of the body, used to tell if the body is
+     * the same as one received before
+     * @return the hash of the body
+     */
+    public long hash(){
+        long h = 0xcbf29ce484222325L;
+        for(byte b: body){
+            h ^= b & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * Reads the values at the key paths of the given extractor from the body
+     * @param extractor the extractor holding the key paths to read
+     * @return the values read by the extractor
+     * @throws IOException thrown if the body can not be read
+     * @throws JSONException thrown if the body is not valid JSON
+     * @see JSONExtractor#extract(java.io.Reader)
+     */
+    public String[][] extract(JSONExtractor extractor)
+                                            throws IOException, JSONException{
+        BodyReader input = new BodyReader(new ByteArrayInputStream(body));
+        try{
+            return extractor.extract(input);
+        }
+        finally{
+            input.close();
+        }
+    }
+
+    /**
+     * Checks the body in one pass over its bytes, without parsing it. The
+     * body must be one JSON object whose strings, objects and arrays are all
+     * closed. Nothing below the top level of the object is read.
+     * @return the keys of the top level of the object with their values. The
+     * value of a string is its text without the quotes or with its escapes
+     * left in, the value of a number, true, false or null is its text, and
+     * the value of an object or array is an empty string.
+     * @throws JSONException thrown if the body is not one object, or is cut
+     * off
+     */
+    public Map<String, String> scan() throws JSONException{
+        Map<String, String> keys = new HashMap<>();
+        byte[] open = new byte[16];
+        int depth = 0, start = -1, keyStart = -1;
+        boolean inString = false, escaped = false, nested = false;
+        String key = null;
+
+        int i = 0;
+        while(i < body.length && Character.isWhitespace(body[i])) i++;
+        if(i == body.length || body[i] != '{')
+            throw new JSONException("Response body is not a JSON object");
+
+        for(; i < body.length; i++){
+            byte b = body[i];
+            if(inString){
+                if(escaped) escaped = false;
+                else if(b == '\\') escaped = true;
+                else if(b == '"'){
+                    inString = false;
+                    if(keyStart >= 0){
+                        key = new String(body, keyStart, i - keyStart,
+                                         StandardCharsets.UTF_8);
+                        keyStart = -1;
+                    }
+                }
+                continue;
+            }
+
+            switch(b){
+                case '"':
+                    inString = true;
+                    if(depth == 1 && key == null) keyStart = i + 1;
+                    break;
+                case '{': case '[':
+                    if(depth == open.length) open = Arrays.copyOf(open, depth*2);
+                    open[depth++] = b;
+                    if(depth == 2) nested = true;
+                    break;
+                case '}': case ']':
+                    if(depth == 0 || open[depth - 1] != ((b == '}')?'{':'['))
+                        throw new JSONException("Response body has an "
+                                            + "unmatched " + (char) b);
+                    if(--depth == 0){
+                        if(key != null) keys.put(key, value(start, i, nested));
+                        while(++i < body.length){
+                            if(!Character.isWhitespace(body[i]))
+                                throw new JSONException("Response body has "
+                                            + "more than one JSON value");
+                        }
+                        return keys;
+                    }
+                    break;
+                case ':':
+                    if(depth == 1){
+                        if(key == null)
+                            throw new JSONException("Response body has a "
+                                                        + "value with no key");
+                        start = i + 1;
+                    }
+                    break;
+                case ',':
+                    if(depth == 1){
+                        if(key != null) keys.put(key, value(start, i, nested));
+                        key = null;
+                        nested = false;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        throw new JSONException("Response body is cut off");
+    }
+
+    /**
+     * Returns the text of a value at the top level of the body
+     * @param from the position after the colon before the value
+     * @param to the position of the comma or brace after the value
+     * @param nested true if the value is an object or array
+     * @return the value as described by scan()
+     */
+    private String value(int from, int to, boolean nested){
+        if(nested) return "";
+        while(from < to && Character.isWhitespace(body[from])) from++;
+        while(to > from && Character.isWhitespace(body[to - 1])) to--;
+        if(to - from >= 2 && body[from] == '"'){
+            from++;
+            to--;
+        }
+        return new String(body, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Works out how long the body of a response stays fresh from its headers
+     * @param r the response
+     * @return the lifetime in milliseconds, or NO_LIFETIME
+     */
+    private static long lifetime(HTTPResponse r){
+        String control = r.getHeader("Cache-Control");
+        if(control != null){
+            for(String part: control.split(",")){
+                part = part.trim().toLowerCase();
+                if(part.equals("no-cache") || part.equals("no-store")) return 0;
+                if(part.startsWith("max-age=")){
+                    try{
+                        return Math.max(0, 1000 * Long.parseLong(
+                                                    part.substring(8).trim()));
+                    }
+                    catch(NumberFormatException ex){}
+                }
+            }
+        }
+
+        //Expires is measured from the Date of the response if it was sent
+        String expires = r.getHeader("Expires");
+        if(expires == null) return NO_LIFETIME;
+        long until = parseDate(expires);
+        if(until == NO_LIFETIME) return 0;
+
+        long date = parseDate(r.getHeader("Date"));
+        if(date == NO_LIFETIME) date = System.currentTimeMillis();
+        return Math.max(0, until - date);
+    }
+
+    /**
+     * Parses an http date
+     * @param s the date, for example "Tue, 07 Apr 2015 20:00:00 GMT"
+     * @return the date in milliseconds, or NO_LIFETIME if s is null or not a
+     * valid date
+     */
+    private static long parseDate(String s){
+        if(s == null) return NO_LIFETIME;
+        try{
+            return ZonedDateTime.parse(s.trim(),
+                    DateTimeFormatter.RFC_1123_DATE_TIME).toInstant()
+                    .toEpochMilli();
+        }
+        catch(DateTimeParseException ex){
+            return NO_LIFETIME;
+        }
+    }
+}
@@ -8,18 +8,19 @@ package team15.JSON;
  */
 
 //Imports
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.net.MalformedURLException;
-import java.net.URL;
+import java.util.Map;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
 
 public class URLToJSON{
     /**
-     * Makes a JSON object from the data at the given url
+     * Makes a JSON object from the data at the given url. The request is made
+     * with the shared HTTPClient and the object is parsed straight from the
+     * body, which may not be larger than BodyReader.MAX_BODY bytes.
      * @param url the target url from which to pull data
      * @return a JSON object made from the data at the target url
      * @throws MalformedURLException thrown if the given url is improperly 
@@ -31,12 +32,82 @@ public class URLToJSON{
      */
     public static JSONObject makeJSON(String url) 
                        throws MalformedURLException, IOException, JSONException{
-        URL in = new URL(url);
-        BufferedReader input = new BufferedReader(
-                                        new InputStreamReader(in.openStream()));    
-
-        JSONObject json = new JSONObject(input.readLine());
-        input.close();
-        return json;
+        HTTPResponse response = HTTPClient.getDefault().get(url);
+        BodyReader input = new BodyReader(response.getBody());
+        try{
+            return new JSONObject(new JSONTokener(input));
+        }
+        finally{
+            input.close();
+            response.close();
+        }
+    }
+    
+    /**
+     * Reads the whole response at the given url into memory, so that it can
+     * be kept and read later. The request is made with the shared HTTPClient.
+     * @param url the target url from which to pull data
+     * @return the body and freshness of the response
+     * @throws MalformedURLException thrown if the given url is improperly 
+     * constructed
+     * @throws IOException thrown if there is a problem opening, closing or
+     * reading from the target url, or the body is larger than
+     * BodyReader.MAX_BODY bytes
+     */
+    public static Payload fetch(String url) 
+                                    throws MalformedURLException, IOException{
+        return fetch(url, null);
+    }
+    
+    /**
+     * Reads the whole response at the given url into memory, sending extra
+     * request headers such as If-None-Match. A 304 Not Modified response
+     * gives a payload with an empty body.
+     * @param url the target url from which to pull data
+     * @param headers the extra request headers by name, or null
+     * @return the body, validators and freshness of the response
+     * @throws MalformedURLException thrown if the given url is improperly 
+     * constructed
+     * @throws IOException thrown if there is a problem opening, closing or
+     * reading from the target url, or the body is larger than
+     * BodyReader.MAX_BODY bytes
+     */
+    public static Payload fetch(String url, Map<String, String> headers) 
+                                    throws MalformedURLException, IOException{
+        HTTPResponse response = HTTPClient.getDefault().get(url, headers);
+        try{
+            return Payload.read(response, BodyReader.MAX_BODY);
+        }
+        finally{
+            response.close();
+        }
+    }
+    
+    /**
+     * Reads the values at the key paths of the given extractor from the data
+     * at the given url, without building a JSON object from the whole
+     * response. The request is made with the shared HTTPClient.
+     * @param url the target url from which to pull data
+     * @param extractor the extractor holding the key paths to read
+     * @return the values read by the extractor
+     * @throws MalformedURLException thrown if the given url is improperly 
+     * constructed
+     * @throws IOException thrown if there is a problem opening, closing or
+     * reading from the target url
+     * @throws JSONException thrown if the data at the target url is not valid
+     * JSON
+     * @see JSONExtractor#extract(java.io.Reader)
+     */
+    public static String[][] extract(String url, JSONExtractor extractor)
+                       throws MalformedURLException, IOException, JSONException{
+        HTTPResponse response = HTTPClient.getDefault().get(url);
+        BodyReader input = new BodyReader(response.getBody());
+        try{
+            return extractor.extract(input);
+        }
+        finally{
+            input.close();
+            response.close();
+        }
     }
 }
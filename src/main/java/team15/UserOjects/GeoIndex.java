@@ -0,0 +1,398 @@
+package team15.UserOjects;
+
+/**
+ * Finds the locations of the catalog nearest to a point, or within a
+ * distance of it, without looking at every location.
+ *
+ * Each location with known coordinates is turned into a point on the unit
+ * sphere, and the points are kept in a k-d tree: the points of each subtree
+ * are held in a range of the arrays, with the median point, on the x, y or z
+ * axis in turn, in the middle of the range and the smaller and larger points
+ * on either side of it.  The straight line distance between two points on
+ * the sphere grows with the distance along the surface, so it can be used
+ * to compare distances, with no special cases at the poles or at 180
+ * degrees of longitude.
+ *
+ * @author team15
+ */
+
+//Imports
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+public final class GeoIndex{
+    //Mean radius of the earth in kilometres
+    public final static double EARTH_RADIUS = 6371.0088;
+
+    private static GeoIndex shared;
+
+    private final LocationCatalog catalog;
+
+    //Positions in the catalog and points of the locations, in tree order
+    private final int[] tree;
+    private final float[][] points;
+
+    /**
+     * Builds the tree over every location of the catalog with known
+     * coordinates
+     * @param c the catalog
+     */
+    public GeoIndex(LocationCatalog c){
+        catalog = c;
+
+        int n = 0;
+        for(int i = 0; i < c.size(); i++){
+            if(!Float.isNaN(c.getLatitude(i)) && !Float.isNaN(c.getLongitude(i)))
+                n++;
+        }
+
+        tree = new int[n];
+        points = new float[3][n];
+        double[] v = new double[3];
+        int k = 0;
+        for(int i = 0; i < c.size() && k < n; i++){
+            if(Float.isNaN(c.getLatitude(i)) || Float.isNaN(c.getLongitude(i)))
+                continue;
+            toPoint(c.getLatitude(i), c.getLongitude(i), v);
+            tree[k] = i;
+            for(int a = 0; a < 3; a++) points[a][k] = (float) v[a];
+            k++;
+        }
+        build(0, n, 0);
+    }
+
+    /**
+     * Returns the index over the catalog shipped with the program, building
+     * it the first time
+     * @return the shared index
+     * @throws IOException thrown if the location index can not be read
+     * @throws IllegalStateException thrown if the shipped location index has
+     * no coordinates. It has to be generated again by LocationIndex with an
+     * OpenWeather city list.
+     */
+    public static synchronized GeoIndex getDefault() throws IOException{
+        if(shared == null){
+            LocationCatalog c = LocationCatalog.getDefault();
+            if(!c.hasCoordinates())
+                throw new IllegalStateException("The location index has no "
+                        + "coordinates, generate it with a city list");
+            shared = new GeoIndex(c);
+        }
+        return shared;
+    }
+
+    /**
+     * Returns the number of locations in the index, which is 0 if the
+     * catalog has no coordinates
+     * @return the number of locations with known coordinates
+     */
+    public int size(){
+        return tree.length;
+    }
+
+    /**
+     * Finds the locations nearest to a point
+     * @param lat the latitude of the point in degrees
+     * @param lon the longitude of the point in degrees
+     * @param n the most locations to find
+     * @return the positions in the catalog of up to n locations, nearest
+     * first
+     */
+    public int[] nearest(double lat, double lon, int n){
+        if(n <= 0 || tree.length == 0) return new int[0];
+
+        double[] q = new double[3];
+        toPoint(lat, lon, q);
+        Heap heap = new Heap(Math.min(n, tree.length));
+        nearest(0, tree.length, 0, q, heap);
+        return heap.sorted();
+    }
+
+    /**
+     * Finds the locations within a distance of a point
+     * @param lat the latitude of the point in degrees
+     * @param lon the longitude of the point in degrees
+     * @param km the distance along the surface of the earth in kilometres
+     * @return the positions in the catalog of the locations, nearest first
+     */
+    public int[] within(double lat, double lon, double km){
+        if(km < 0 || tree.length == 0) return new int[0];
+
+        double[] q = new double[3];
+        toPoint(lat, lon, q);
+        double chord = 2*Math.sin(Math.min(km/EARTH_RADIUS, Math.PI)/2);
+        Heap found = new Heap(16);
+        within(0, tree.length, 0, q, chord*chord, found);
+        return found.sorted();
+    }
+
+    /**
+     * Makes a Location for each of the locations nearest to a point
+     * @param lat the latitude of the point in degrees
+     * @param lon the longitude of the point in degrees
+     * @param n the most locations to find
+     * @return up to n locations, nearest first
+     */
+    public List<Location> getNearest(double lat, double lon, int n){
+        int[] found = nearest(lat, lon, n);
+        List<Location> result = new ArrayList<>(found.length);
+        for(int i: found) result.add(catalog.get(i));
+        return result;
+    }
+
+    /**
+     * Returns the OpenWeather id of the location nearest to a point
+     * @param lat the latitude of the point in degrees
+     * @param lon the longitude of the point in degrees
+     * @return the id, or -1 if the index is empty
+     */
+    public int nearestID(double lat, double lon){
+        int[] found = nearest(lat, lon, 1);
+        return (found.length == 0)?-1:catalog.getID(found[0]);
+    }
+
+    /**
+     * Returns the distance between two points along the surface of the
+     * earth
+     * @param lat1 the latitude of the first point in degrees
+     * @param lon1 the longitude of the first point in degrees
+     * @param lat2 the latitude of the second point in degrees
+     * @param lon2 the longitude of the second point in degrees
+     * @return the distance in kilometres
+     */
+    public static double distance(double lat1, double lon1, double lat2,
+                                  double lon2){
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double h = Math.sin(dLat/2)*Math.sin(dLat/2)
+                + Math.cos(Math.toRadians(lat1))*Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon/2)*Math.sin(dLon/2);
+        return 2*EARTH_RADIUS*Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+
+    /**
+     * Puts the median point of a range, on the axis of its depth, in the
+     * middle of the range, and builds the subtrees on either side of it
+     * @param lo the start of the range
+     * @param hi the end of the range
+     * @param axis the axis to split the range on
+     */
+    private void build(int lo, int hi, int axis){
+        if(hi - lo < 2) return;
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, points[axis]);
+        build(lo, mid, (axis + 1) % 3);
+        build(mid + 1, hi, (axis + 1) % 3);
+    }
+
+    /**
+     * Moves the points of a range so that the k-th smallest on an axis is
+     * at k, the smaller ones before it and the larger ones after it
+     * @param lo the first point of the range
+     * @param hi the last point of the range
+     * @param k the position to fill
+     * @param key the coordinates on the axis
+     */
+    private void select(int lo, int hi, int k, float[] key){
+        while(lo < hi){
+            float pivot = key[(lo + hi) >>> 1];
+            int i = lo, j = hi;
+            while(i <= j){
+                while(key[i] < pivot) i++;
+                while(key[j] > pivot) j--;
+                if(i <= j) swap(i++, j--);
+            }
+            if(k <= j) hi = j;
+            else if(k >= i) lo = i;
+            else return;
+        }
+    }
+
+    /**
+     * Swaps two points
+     * @param i the first point
+     * @param j the second point
+     */
+    private void swap(int i, int j){
+        int t = tree[i];
+        tree[i] = tree[j];
+        tree[j] = t;
+        for(float[] p: points){
+            float f = p[i];
+            p[i] = p[j];
+            p[j] = f;
+        }
+    }
+
+    /**
+     * Adds the points of a subtree that are nearer than the farthest point
+     * found so far
+     * @param lo the start of the subtree
+     * @param hi the end of the subtree
+     * @param axis the axis the subtree is split on
+     * @param q the point searched for
+     * @param heap the nearest points found so far
+     */
+    private void nearest(int lo, int hi, int axis, double[] q, Heap heap){
+        if(lo >= hi) return;
+        int mid = (lo + hi) >>> 1;
+        heap.offer(tree[mid], distance(mid, q));
+
+        double diff = q[axis] - points[axis][mid];
+        int next = (axis + 1) % 3;
+        if(diff < 0){
+            nearest(lo, mid, next, q, heap);
+            if(diff*diff < heap.worst()) nearest(mid + 1, hi, next, q, heap);
+        }
+        else{
+            nearest(mid + 1, hi, next, q, heap);
+            if(diff*diff < heap.worst()) nearest(lo, mid, next, q, heap);
+        }
+    }
+
+    /**
+     * Adds the points of a subtree that are within a distance of a point
+     * @param lo the start of the subtree
+     * @param hi the end of the subtree
+     * @param axis the axis the subtree is split on
+     * @param q the point searched for
+     * @param limit the square of the straight line distance
+     * @param found the points found so far
+     */
+    private void within(int lo, int hi, int axis, double[] q, double limit,
+                        Heap found){
+        if(lo >= hi) return;
+        int mid = (lo + hi) >>> 1;
+        double d = distance(mid, q);
+        if(d <= limit) found.add(tree[mid], d);
+
+        double diff = q[axis] - points[axis][mid];
+        int next = (axis + 1) % 3;
+        if(diff < 0 || diff*diff <= limit) within(lo, mid, next, q, limit, found);
+        if(diff >= 0 || diff*diff <= limit)
+            within(mid + 1, hi, next, q, limit, found);
+    }
+
+    /**
+     * Returns the square of the straight line distance from a point of the
+     * tree to another point
+     * @param i the position of the point in the tree
+     * @param q the other point
+     * @return the squared distance
+     */
+    private double distance(int i, double[] q){
+        double dx = points[0][i] - q[0];
+        double dy = points[1][i] - q[1];
+        double dz = points[2][i] - q[2];
+        return dx*dx + dy*dy + dz*dz;
+    }
+
+    /**
+     * Turns coordinates into a point on the unit sphere
+     * @param lat the latitude in degrees
+     * @param lon the longitude in degrees
+     * @param v the array to put the x, y and z of the point in
+     */
+    private static void toPoint(double lat, double lon, double[] v){
+        double phi = Math.toRadians(lat), lambda = Math.toRadians(lon);
+        v[0] = Math.cos(phi)*Math.cos(lambda);
+        v[1] = Math.cos(phi)*Math.sin(lambda);
+        v[2] = Math.sin(phi);
+    }
+
+    /**
+     * Positions in the catalog with their squared distances. Used either as
+     * a max heap holding the nearest points offered to it, or as a list that
+     * grows as points are added.
+     */
+    private static class Heap{
+        private int[] items;
+        private double[] keys;
+        private int size;
+
+        /**
+         * Creates an empty heap
+         * @param capacity the most points kept by offer
+         */
+        Heap(int capacity){
+            items = new int[capacity];
+            keys = new double[capacity];
+        }
+
+        /**
+         * Returns the distance a point must be under to be kept by offer
+         * @return the largest distance kept, or infinity if the heap is not
+         * full
+         */
+        double worst(){
+            return (size < items.length)?Double.POSITIVE_INFINITY:keys[0];
+        }
+
+        /**
+         * Keeps a point if it is nearer than the farthest point kept, or if
+         * the heap is not full
+         * @param item the position of the point in the catalog
+         * @param key the squared distance of the point
+         */
+        void offer(int item, double key){
+            if(size < items.length){
+                int i = size++;
+                while(i > 0 && keys[(i - 1)/2] < key){
+                    items[i] = items[(i - 1)/2];
+                    keys[i] = keys[(i - 1)/2];
+                    i = (i - 1)/2;
+                }
+                items[i] = item;
+                keys[i] = key;
+            }
+            else if(key < keys[0]){
+                int i = 0;
+                while(2*i + 1 < size){
+                    int c = 2*i + 1;
+                    if(c + 1 < size && keys[c + 1] > keys[c]) c++;
+                    if(keys[c] <= key) break;
+                    items[i] = items[c];
+                    keys[i] = keys[c];
+                    i = c;
+                }
+                items[i] = item;
+                keys[i] = key;
+            }
+        }
+
+        /**
+         * Adds a point, growing the list if it is full
+         * @param item the position of the point in the catalog
+         * @param key the squared distance of the point
+         */
+        void add(int item, double key){
+            if(size == items.length){
+                items = Arrays.copyOf(items, size*2);
+                keys = Arrays.copyOf(keys, size*2);
+            }
+            items[size] = item;
+            keys[size++] = key;
+        }
+
+        /**
+         * Returns the points held, nearest first
+         * @return the positions of the points in the catalog
+         */
+        int[] sorted(){
+            Integer[] byKey = new Integer[size];
+            for(int i = 0; i < size; i++) byKey[i] = i;
+            Arrays.sort(byKey, new Comparator<Integer>(){
+                public int compare(Integer a, Integer b){
+                    return Double.compare(keys[a], keys[b]);
+                }
+            });
+
+            int[] result = new int[size];
+            for(int i = 0; i < size; i++) result[i] = items[byKey[i]];
+            return result;
+        }
+    }
+}
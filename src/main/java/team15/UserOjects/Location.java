@@ -13,16 +13,31 @@ package team15.UserOjects;
  */
 
 //Imports
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class Location implements Serializable{
     
     //Version 1 of Location
     private static final long serialVersionUID = -6023922766430552215L;
+
+    //Latitude and longitude in a gps string, such as "45.42,-75.69"
+    private final static Pattern GPS = Pattern.compile(
+            "([-+]?\\d+(?:\\.\\d+)?)\\s*[,;\\s]\\s*([-+]?\\d+(?:\\.\\d+)?)");
+
     //Local fields
     private String location;
     private String country;
     private final String id;
+
+    //Coordinates in degrees, NaN if they are not known
+    private float latitude, longitude;
+    //False if the coordinates are not known, as in locations saved before
+    //coordinates were kept
+    private boolean located;
     
     /**
      * Creates a new blank location object
@@ -31,6 +46,7 @@ public class Location implements Serializable{
         location = "N/A";
         country = "";
         id = "";
+        latitude = longitude = Float.NaN;
     }
     
     /**
@@ -39,13 +55,46 @@ public class Location implements Serializable{
      * @param country The country of the location
      * @param city the city/state/province of the location
      * @param id the openweather id of the current weather location
-     * @param gps string containing the latitude and longitude of the location
+     * @param gps string containing the latitude and longitude of the location,
+     * such as "45.42,-75.69"
      */
     public Location (String country, String city,  String id, String gps){
     	this.location = city + ", " + country;
         this.location += gps.isEmpty()?"":(" " + gps);
         this.country = country;
         this.id = id;    
+        latitude = longitude = Float.NaN;
+
+        Matcher m = GPS.matcher(gps);
+        if(m.find()) setCoordinates(Float.parseFloat(m.group(1)),
+                                    Float.parseFloat(m.group(2)));
+    }
+
+    /**
+     * Creates a new location object with the given coordinates. The
+     * coordinates are not shown in the string representation.
+     * @param country The country of the location
+     * @param city the city/state/province of the location
+     * @param id the openweather id of the current weather location
+     * @param lat the latitude in degrees, or NaN if it is not known
+     * @param lon the longitude in degrees, or NaN if it is not known
+     */
+    public Location(String country, String city, String id, float lat,
+                    float lon){
+        this(country, city, id, "");
+        setCoordinates(lat, lon);
+    }
+
+    /**
+     * Sets the coordinates if they are valid
+     * @param lat the latitude in degrees
+     * @param lon the longitude in degrees
+     */
+    private void setCoordinates(float lat, float lon){
+        if(Math.abs(lat) > 90 || Math.abs(lon) > 180) return;
+        latitude = lat;
+        longitude = lon;
+        located = true;
     }
 
     /**
@@ -64,6 +113,30 @@ public class Location implements Serializable{
         return this.id;
     }
 
+    /**
+     * Returns true if the coordinates of the location are known
+     * @return true if the latitude and longitude are known
+     */
+    public boolean hasCoordinates(){
+        return located;
+    }
+
+    /**
+     * Returns the latitude of the location
+     * @return the latitude in degrees, or NaN if it is not known
+     */
+    public float getLatitude(){
+        return latitude;
+    }
+
+    /**
+     * Returns the longitude of the location
+     * @return the longitude in degrees, or NaN if it is not known
+     */
+    public float getLongitude(){
+        return longitude;
+    }
+
     /**
      * Returns the string representation of the object
      * @return the string representation of the object
@@ -88,4 +161,18 @@ public class Location implements Serializable{
         String s2 = l.id;
         return s1.equals(s2);
     }   
+
+    /**
+     * Reads a location, marking the coordinates as not known if it was saved
+     * before coordinates were kept
+     * @param in the stream to read the location from
+     * @throws IOException thrown if the location can not be read
+     * @throws ClassNotFoundException thrown if a class of the location is
+     * not found
+     */
+    private void readObject(ObjectInputStream in)
+                                    throws IOException, ClassNotFoundException{
+        in.defaultReadObject();
+        if(!located) latitude = longitude = Float.NaN;
+    }
 }
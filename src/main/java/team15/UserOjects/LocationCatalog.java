@@ -0,0 +1,229 @@
+package team15.UserOjects;
+
+/**
+ * Every OpenWeather location held in a few flat arrays instead of one
+ * Location object, with three Strings, per location.
+ *
+ * The locations keep the order of the location index, sorted by country and
+ * then city, and are looked up by their position:
+ * - the OpenWeather ids are held as ints
+ * - the countries are held once each, every location keeps the short code
+ *   of its country
+ * - the city names are packed one after the other as UTF-8 into one byte
+ *   array, with the offset of each name
+ * - the latitude and longitude are held as floats, when the index has them
+ *
+ * Location objects are only made when one is asked for, and are not kept.
+ *
+ * @author team15
+ */
+
+//Imports
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class LocationCatalog{
+    private static LocationCatalog shared;
+
+    //Countries, in order, and the position of the first location of each
+    private final String[] countries;
+    private final int[] firsts;
+
+    //One entry for each location
+    private final int[] ids;
+    private final short[] codes;
+    private final int[] offsets;
+    private final byte[] names;
+
+    //Coordinates of each location, null if the index has none
+    private final float[] latitudes, longitudes;
+
+    /**
+     * Reads every location of the given index into the catalog
+     * @param index the location index
+     */
+    public LocationCatalog(LocationIndex index){
+        int n = index.size(), c = index.countryCount();
+        if(c > 0xFFFF)
+            throw new IllegalArgumentException("Too many countries: " + c);
+
+        countries = index.getCountries();
+        firsts = new int[c + 1];
+        for(int i = 0; i < c; i++) firsts[i] = index.first(i);
+        firsts[c] = n;
+
+        ids = new int[n];
+        codes = new short[n];
+        offsets = new int[n + 1];
+        ByteArrayOutputStream arena = new ByteArrayOutputStream(n * 10);
+        for(int k = 0; k < c; k++){
+            for(int i = firsts[k]; i < firsts[k + 1]; i++){
+                ids[i] = index.idAt(i);
+                codes[i] = (short) k;
+                offsets[i] = arena.size();
+                index.copyCity(i, arena);
+            }
+        }
+        offsets[n] = arena.size();
+        names = arena.toByteArray();
+
+        if(index.hasCoordinates()){
+            latitudes = new float[n];
+            longitudes = new float[n];
+            for(int i = 0; i < n; i++){
+                latitudes[i] = index.latitudeAt(i);
+                longitudes[i] = index.longitudeAt(i);
+            }
+        }
+        else{
+            latitudes = null;
+            longitudes = null;
+        }
+    }
+
+    /**
+     * Returns the catalog of the index shipped with the program, reading it
+     * the first time
+     * @return the shared catalog
+     * @throws IOException thrown if the index can not be found or mapped
+     */
+    public static synchronized LocationCatalog getDefault() throws IOException{
+        if(shared == null) shared = new LocationCatalog(LocationIndex.getDefault());
+        return shared;
+    }
+
+    /**
+     * Returns the number of locations
+     * @return the number of locations
+     */
+    public int size(){
+        return ids.length;
+    }
+
+    /**
+     * Returns the names of the countries in order, the position of each
+     * being its code
+     * @return a copy of the country names
+     */
+    public String[] getCountries(){
+        return countries.clone();
+    }
+
+    /**
+     * Returns the position of the first location of a country
+     * @param code the code of the country
+     * @return the position of its first location
+     */
+    public int first(int code){
+        return firsts[code];
+    }
+
+    /**
+     * Returns the position after the last location of a country
+     * @param code the code of the country
+     * @return the position after its last location
+     */
+    public int end(int code){
+        return firsts[code + 1];
+    }
+
+    /**
+     * Returns the OpenWeather id of a location
+     * @param i the position of the location
+     * @return the id
+     */
+    public int getID(int i){
+        return ids[i];
+    }
+
+    /**
+     * Returns the code of the country of a location
+     * @param i the position of the location
+     * @return the code of the country
+     */
+    public int getCountryCode(int i){
+        return codes[i] & 0xFFFF;
+    }
+
+    /**
+     * Returns the country of a location
+     * @param i the position of the location
+     * @return the name of the country
+     */
+    public String getCountry(int i){
+        return countries[codes[i] & 0xFFFF];
+    }
+
+    /**
+     * Returns the city name of a location
+     * @param i the position of the location
+     * @return the name of the city
+     */
+    public String getCity(int i){
+        return new String(names, offsets[i], offsets[i + 1] - offsets[i],
+                          StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns true if the catalog has the coordinates of its locations
+     * @return true if the latitudes and longitudes are known
+     */
+    public boolean hasCoordinates(){
+        return latitudes != null;
+    }
+
+    /**
+     * Returns the latitude of a location
+     * @param i the position of the location
+     * @return the latitude in degrees, or NaN if it is not known
+     */
+    public float getLatitude(int i){
+        return (latitudes == null)?Float.NaN:latitudes[i];
+    }
+
+    /**
+     * Returns the longitude of a location
+     * @param i the position of the location
+     * @return the longitude in degrees, or NaN if it is not known
+     */
+    public float getLongitude(int i){
+        return (longitudes == null)?Float.NaN:longitudes[i];
+    }
+
+    /**
+     * Makes a Location for the location at the given position. The Location
+     * is not kept by the catalog.
+     * @param i the position of the location
+     * @return a new Location
+     */
+    public Location get(int i){
+        return new Location(getCountry(i), getCity(i), Integer.toString(ids[i]),
+                            getLatitude(i), getLongitude(i));
+    }
+
+    /**
+     * Makes a Location for each location of a country
+     * @param code the code of the country
+     * @return the locations of the country, sorted by city
+     */
+    public List<Location> getLocations(int code){
+        List<Location> result = new ArrayList<>(end(code) - first(code));
+        for(int i = first(code); i < end(code); i++) result.add(get(i));
+        return result;
+    }
+
+    /**
+     * Returns the number of bytes the arrays of the catalog take up, not
+     * counting the headers of the arrays and the country names
+     * @return the approximate size of the catalog in bytes
+     */
+    public long getFootprint(){
+        long total = 4L*firsts.length + 4L*ids.length + 2L*codes.length
+                        + 4L*offsets.length + names.length;
+        if(latitudes != null) total += 4L*latitudes.length + 4L*longitudes.length;
+        return total;
+    }
+}
@@ -0,0 +1,490 @@
+package team15.UserOjects;
+
+/**
+ * A sorted binary index of every OpenWeather location, read through a memory
+ * mapped file so that the country and city lists can be shown without
+ * deserializing every Location.
+ *
+ * The index is generated at build time from the serialized location list by
+ * the main method of this class, see the location-index profile in pom.xml.
+ * All numbers are big endian:
+ * - a header of the magic number, the version, the number of countries and
+ *   the number of locations
+ * - the country table, each entry the offset of the country name and the
+ *   index of its first location
+ * - the location table, sorted by country and then city, each entry the
+ *   offset of the city name and the OpenWeather id
+ * - in version 2 only, the coordinate table, each entry the latitude and
+ *   longitude of the location at the same position as floats, NaN if they
+ *   are not known
+ * - the names, each a 2 byte length followed by the name in UTF-8
+ *
+ * Version 1 is written when there are no coordinates.  The coordinates are
+ * taken from an OpenWeather city list (city.list.json) if one is given to
+ * the main method.
+ *
+ * Locations are only made for the country that is asked for.
+ *
+ * @author team15
+ */
+
+//Imports
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+public final class LocationIndex{
+    //Resource that holds the index
+    public final static String RESOURCE = "/locations.idx";
+
+    //Layout of the file
+    private final static int MAGIC = 0x4C495831;
+    private final static int VERSION = 1, LOCATED = 2;
+    private final static int HEADER = 16;
+    private final static int ENTRY = 8;
+
+    private static LocationIndex shared;
+
+    private final MappedByteBuffer map;
+    private final int countries, locations;
+    private final int locationTable;
+    //Offset of the coordinate table, or -1 if there is none
+    private final int coordinateTable;
+
+    //Names of the countries, in order
+    private final String[] names;
+
+    /**
+     * Maps the index in the given file
+     * @param f the file that holds the index
+     * @throws IOException thrown if the file can not be mapped or is not an
+     * index
+     */
+    public LocationIndex(File f) throws IOException{
+        RandomAccessFile file = new RandomAccessFile(f, "r");
+        try{
+            map = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+                                        file.length());
+        }
+        finally{
+            file.close();
+        }
+
+        if(map.capacity() < HEADER || map.getInt(0) != MAGIC
+                || (map.getInt(4) != VERSION && map.getInt(4) != LOCATED))
+            throw new IOException("Not a location index: " + f);
+        countries = map.getInt(8);
+        locations = map.getInt(12);
+        locationTable = HEADER + ENTRY*countries;
+        int tables = (map.getInt(4) == LOCATED)?2:1;
+        if(countries < 0 || locations < 0 || locationTable
+                + (long) tables*ENTRY*locations > map.capacity())
+            throw new IOException("Location index is cut off: " + f);
+        coordinateTable = (tables == 2)?locationTable + ENTRY*locations:-1;
+
+        names = new String[countries];
+        for(int i = 0; i < countries; i++){
+            names[i] = string(map.getInt(HEADER + ENTRY*i));
+        }
+    }
+
+    /**
+     * Returns the index shipped with the program, mapping it the first time.
+     * If the index is inside the jar it is copied to a temporary file first.
+     * @return the shared index
+     * @throws IOException thrown if the index can not be found or mapped
+     */
+    public static synchronized LocationIndex getDefault() throws IOException{
+        if(shared == null) shared = new LocationIndex(resourceFile());
+        return shared;
+    }
+
+    /**
+     * Returns the number of countries
+     * @return the number of countries
+     */
+    public int countryCount(){
+        return countries;
+    }
+
+    /**
+     * Returns the number of locations in every country
+     * @return the number of locations
+     */
+    public int size(){
+        return locations;
+    }
+
+    /**
+     * Returns the names of the countries in order
+     * @return a copy of the country names
+     */
+    public String[] getCountries(){
+        return names.clone();
+    }
+
+    /**
+     * Returns the position of the given country
+     * @param country the name of the country
+     * @return the position of the country, or -1 if there is no such country
+     */
+    public int indexOf(String country){
+        int lo = 0, hi = countries - 1;
+        while(lo <= hi){
+            int mid = (lo + hi) >>> 1;
+            int c = names[mid].compareTo(country);
+            if(c == 0) return mid;
+            if(c < 0) lo = mid + 1;
+            else hi = mid - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the locations in the given country, sorted by city
+     * @param country the name of the country
+     * @return the locations of the country, empty if there is no such
+     * country
+     */
+    public List<Location> getLocations(String country){
+        int c = indexOf(country);
+        if(c == -1) return new ArrayList<>();
+
+        int first = first(c);
+        int end = (c + 1 < countries)?first(c + 1):locations;
+        List<Location> result = new ArrayList<>(end - first);
+        for(int i = first; i < end; i++){
+            result.add(get(i, names[c]));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the location at the given position of the location table
+     * @param i the position of the location
+     * @param country the name of the country the location is in
+     * @return the location
+     */
+    private Location get(int i, String country){
+        int at = locationTable + ENTRY*i;
+        return new Location(country, string(map.getInt(at)),
+                            Integer.toString(map.getInt(at + 4)),
+                            latitudeAt(i), longitudeAt(i));
+    }
+
+    /**
+     * Returns the position of the first location of a country
+     * @param c the position of the country
+     * @return the position of its first location
+     */
+    int first(int c){
+        return map.getInt(HEADER + ENTRY*c + 4);
+    }
+
+    /**
+     * Returns the OpenWeather id of the location at the given position
+     * @param i the position of the location
+     * @return the id
+     */
+    int idAt(int i){
+        return map.getInt(locationTable + ENTRY*i + 4);
+    }
+
+    /**
+     * Returns true if the index has the coordinates of its locations
+     * @return true if there is a coordinate table
+     */
+    boolean hasCoordinates(){
+        return coordinateTable != -1;
+    }
+
+    /**
+     * Returns the latitude of the location at the given position
+     * @param i the position of the location
+     * @return the latitude in degrees, or NaN if it is not known
+     */
+    float latitudeAt(int i){
+        return (coordinateTable == -1)?Float.NaN
+                :map.getFloat(coordinateTable + ENTRY*i);
+    }
+
+    /**
+     * Returns the longitude of the location at the given position
+     * @param i the position of the location
+     * @return the longitude in degrees, or NaN if it is not known
+     */
+    float longitudeAt(int i){
+        return (coordinateTable == -1)?Float.NaN
+                :map.getFloat(coordinateTable + ENTRY*i + 4);
+    }
+
+    /**
+     * Copies the UTF-8 city name of the location at the given position to a
+     * stream
+     * @param i the position of the location
+     * @param out the stream to copy the name to
+     */
+    void copyCity(int i, ByteArrayOutputStream out){
+        int at = map.getInt(locationTable + ENTRY*i);
+        int n = map.getShort(at) & 0xFFFF;
+        for(int k = 0; k < n; k++) out.write(map.get(at + 2 + k));
+    }
+
+    /**
+     * Reads a name
+     * @param at the offset of the name
+     * @return the name
+     */
+    private String string(int at){
+        int n = map.getShort(at) & 0xFFFF;
+        byte[] b = new byte[n];
+        for(int i = 0; i < n; i++) b[i] = map.get(at + 2 + i);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Finds the file of the index resource, copying it out of the jar if it
+     * is not a file of its own
+     * @return the file that holds the index
+     * @throws IOException thrown if the resource can not be found or copied
+     */
+    private static File resourceFile() throws IOException{
+        URL url = LocationIndex.class.getResource(RESOURCE);
+        if(url == null) throw new FileNotFoundException(RESOURCE);
+
+        if("file".equals(url.getProtocol())){
+            try{
+                return new File(url.toURI());
+            }
+            catch(URISyntaxException ex){}
+        }
+
+        File copy = File.createTempFile("locations", ".idx");
+        copy.deleteOnExit();
+        InputStream in = url.openStream();
+        OutputStream out = new FileOutputStream(copy);
+        try{
+            byte[] buffer = new byte[8192];
+            int n;
+            while((n = in.read(buffer)) != -1) out.write(buffer, 0, n);
+        }
+        finally{
+            in.close();
+            out.close();
+        }
+        return copy;
+    }
+
+    /**
+     * Writes an index of the given locations
+     * @param list the locations, in any order
+     * @param coordinates the latitude and longitude of each OpenWeather id,
+     * or null to write an index without coordinates
+     * @param out the stream to write the index to
+     * @throws IOException thrown if the index can not be written or a name
+     * is too long
+     */
+    public static void write(List<Location> list,
+                             Map<Integer, float[]> coordinates,
+                             OutputStream out) throws IOException{
+        //Split each location into its country, city and id, sorted
+        List<String[]> rows = new ArrayList<>(list.size());
+        for(Location l: list){
+            String name = l.toString(), country = l.getCountry();
+            String suffix = ", " + country;
+            String city = name.endsWith(suffix)?
+                    name.substring(0, name.length() - suffix.length()):name;
+            rows.add(new String[]{country, city, l.getID()});
+        }
+        Collections.sort(rows, new Comparator<String[]>(){
+            public int compare(String[] a, String[] b){
+                int c = a[0].compareTo(b[0]);
+                return (c != 0)?c:a[1].compareTo(b[1]);
+            }
+        });
+
+        //Find where each country starts
+        List<String> countries = new ArrayList<>();
+        List<Integer> firsts = new ArrayList<>();
+        for(int i = 0; i < rows.size(); i++){
+            String c = rows.get(i)[0];
+            if(countries.isEmpty() || !countries.get(countries.size() - 1).equals(c)){
+                countries.add(c);
+                firsts.add(i);
+            }
+        }
+
+        //Lay out the names after the tables, each distinct name once
+        int tables = (coordinates == null)?1:2;
+        int base = HEADER + ENTRY*countries.size() + tables*ENTRY*rows.size();
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        DataOutputStream textOut = new DataOutputStream(text);
+        HashMap<String, Integer> offsets = new HashMap<>();
+
+        DataOutputStream data = new DataOutputStream(
+                                            new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt((coordinates == null)?VERSION:LOCATED);
+        data.writeInt(countries.size());
+        data.writeInt(rows.size());
+        for(int i = 0; i < countries.size(); i++){
+            data.writeInt(base + name(countries.get(i), offsets, textOut));
+            data.writeInt(firsts.get(i));
+        }
+        for(String[] r: rows){
+            data.writeInt(base + name(r[1], offsets, textOut));
+            data.writeInt(Integer.parseInt(r[2]));
+        }
+        if(coordinates != null){
+            for(String[] r: rows){
+                float[] c = coordinates.get(Integer.parseInt(r[2]));
+                data.writeFloat((c == null)?Float.NaN:c[0]);
+                data.writeFloat((c == null)?Float.NaN:c[1]);
+            }
+        }
+        textOut.flush();
+        text.writeTo(data);
+        data.flush();
+    }
+
+    /**
+     * Adds a name to the names of an index being written, unless it is there
+     * already
+     * @param s the name
+     * @param offsets the offset of each name written so far
+     * @param text the stream of the names
+     * @return the offset of the name from the start of the names
+     * @throws IOException thrown if the name is too long
+     */
+    private static int name(String s, HashMap<String, Integer> offsets,
+                            DataOutputStream text) throws IOException{
+        Integer at = offsets.get(s);
+        if(at != null) return at;
+
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        if(b.length > 0xFFFF) throw new IOException("Name is too long: " + s);
+        at = text.size();
+        text.writeShort(b.length);
+        text.write(b);
+        offsets.put(s, at);
+        return at;
+    }
+
+    /**
+     * Reads the coordinates of each location from an OpenWeather city list,
+     * either a JSON array of cities or one JSON city on each line, such as
+     * {"id":6094817,"name":"Ottawa","country":"CA",
+     * "coord":{"lon":-75.69,"lat":45.42}}
+     * @param f the city list
+     * @return the latitude and longitude of each OpenWeather id
+     * @throws IOException thrown if the file can not be read
+     */
+    public static Map<Integer, float[]> readCoordinates(File f)
+                                                            throws IOException{
+        Map<Integer, float[]> result = new HashMap<>();
+        InputStream in = new BufferedInputStream(new FileInputStream(f));
+        try{
+            JSONTokener tokens = new JSONTokener(
+                    new InputStreamReader(in, StandardCharsets.UTF_8));
+            char c = tokens.nextClean();
+            if(c == '['){
+                tokens.back();
+                JSONArray cities = new JSONArray(tokens);
+                for(int i = 0; i < cities.length(); i++){
+                    addCoordinates(cities.getJSONObject(i), result);
+                }
+            }
+            else{
+                while(c == '{'){
+                    tokens.back();
+                    addCoordinates(new JSONObject(tokens), result);
+                    c = tokens.nextClean();
+                }
+            }
+        }
+        finally{
+            in.close();
+        }
+        return result;
+    }
+
+    /**
+     * Adds the coordinates of a city of an OpenWeather city list
+     * @param city the city
+     * @param result the coordinates of each OpenWeather id
+     */
+    private static void addCoordinates(JSONObject city,
+                                       Map<Integer, float[]> result){
+        JSONObject coord = city.optJSONObject("coord");
+        if(coord == null || !city.has("id")) return;
+        result.put(city.getInt("id"), new float[]{
+                        (float) coord.optDouble("lat"),
+                        (float) coord.optDouble("lon")});
+    }
+
+    /**
+     * Generates the location index from a serialized list of locations,
+     * with the coordinates from an OpenWeather city list if one is given
+     * @param args the serialized list, the index file to write and
+     * optionally the city list
+     * @throws Exception thrown if the lists can not be read or the index can
+     * not be written
+     */
+    @SuppressWarnings("unchecked")
+    public static void main(String[] args) throws Exception{
+        if(args.length != 2 && args.length != 3){
+            System.out.println("Usage: LocationIndex <locations.dat> "
+                               + "<locations.idx> [city.list.json]");
+            System.exit(1);
+        }
+
+        List<Location> list;
+        ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(
+                                                new FileInputStream(args[0])));
+        try{
+            list = (List<Location>) in.readObject();
+        }
+        finally{
+            in.close();
+        }
+
+        Map<Integer, float[]> coordinates = null;
+        if(args.length == 3) coordinates = readCoordinates(new File(args[2]));
+
+        OutputStream out = new FileOutputStream(args[1]);
+        try{
+            write(list, coordinates, out);
+        }
+        finally{
+            out.close();
+        }
+        System.out.println("Wrote " + list.size() + " locations to " + args[1]
+                + ((coordinates == null)?"":", with the coordinates of "
+                   + coordinates.size() + " cities"));
+    }
+}
@@ -0,0 +1,402 @@
+package team15.UserOjects;
+
+/**
+ * Finds locations in the catalog by the city name the user is typing.
+ *
+ * City names are first normalized: accents are taken off, letters are made
+ * lower case and punctuation is turned into spaces.  Two indexes are kept
+ * over the normalized names:
+ * - the positions of the locations sorted by name, so that every name that
+ *   starts with the query is found by a binary search
+ * - for each trigram (three characters in a row, with a space added before
+ *   and after the name), the locations whose name has it, so that names that
+ *   are close to a misspelled query are found by the trigrams they share
+ *
+ * Results are ranked with exact matches first, then names that start with
+ * the query, shortest first, then names that have at least half of the
+ * trigrams of the query, ranked by the trigrams they share over the
+ * trigrams of both names.
+ *
+ * @author team15
+ */
+
+//Imports
+import java.io.IOException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+public final class LocationSearch{
+    //Most results returned by find if no limit is given
+    public final static int RESULTS = 20;
+
+    //Fewest of the trigrams of a query a name must have to match it
+    private final static float MIN_SHARED = 0.5f;
+
+    //Longest query that is used, longer queries are cut
+    private final static int MAX_QUERY = 64;
+
+    //Characters of a trigram: space, a to z, 0 to 9 and any other letter
+    private final static int SYMBOLS = 38;
+    private final static byte OTHER = '_';
+
+    private static LocationSearch shared;
+
+    private final LocationCatalog catalog;
+
+    //Normalized names, packed like the names of the catalog
+    private final byte[] keys;
+    private final int[] keyOffsets;
+
+    //Positions of the locations sorted by normalized name
+    private final int[] sorted;
+
+    //Locations of each trigram and number of trigrams of each name
+    private final int[] gramStarts;
+    private final int[] postings;
+    private final short[] gramCounts;
+
+    /**
+     * Builds the indexes over every location of the given catalog
+     * @param c the catalog to search
+     */
+    public LocationSearch(LocationCatalog c){
+        catalog = c;
+        final int n = c.size();
+
+        //Normalize every name
+        StringBuilder all = new StringBuilder(n * 10);
+        keyOffsets = new int[n + 1];
+        for(int i = 0; i < n; i++){
+            keyOffsets[i] = all.length();
+            all.append(normalize(c.getCity(i)));
+        }
+        keyOffsets[n] = all.length();
+        keys = new byte[all.length()];
+        for(int i = 0; i < keys.length; i++) keys[i] = (byte) all.charAt(i);
+
+        //Sort the positions by name
+        Integer[] order = new Integer[n];
+        for(int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, new Comparator<Integer>(){
+            public int compare(Integer a, Integer b){
+                return compareKeys(a, b);
+            }
+        });
+        sorted = new int[n];
+        for(int i = 0; i < n; i++) sorted[i] = order[i];
+
+        //Count the locations of each trigram, then fill them in
+        gramCounts = new short[n];
+        gramStarts = new int[SYMBOLS*SYMBOLS*SYMBOLS + 1];
+        int[] grams = new int[0];
+        for(int i = 0; i < n; i++){
+            grams = trigrams(keys, keyOffsets[i], keyOffsets[i + 1], grams);
+            int m = unique(grams);
+            gramCounts[i] = (short) Math.min(m, Short.MAX_VALUE);
+            for(int k = 0; k < m; k++) gramStarts[grams[k] + 1]++;
+        }
+        for(int g = 1; g < gramStarts.length; g++) gramStarts[g] += gramStarts[g - 1];
+
+        postings = new int[gramStarts[gramStarts.length - 1]];
+        int[] next = Arrays.copyOf(gramStarts, gramStarts.length - 1);
+        for(int i = 0; i < n; i++){
+            grams = trigrams(keys, keyOffsets[i], keyOffsets[i + 1], grams);
+            int m = unique(grams);
+            for(int k = 0; k < m; k++) postings[next[grams[k]]++] = i;
+        }
+    }
+
+    /**
+     * Returns the search over the catalog shipped with the program, building
+     * it the first time
+     * @return the shared search
+     * @throws IOException thrown if the location index can not be read
+     */
+    public static synchronized LocationSearch getDefault() throws IOException{
+        if(shared == null) shared = new LocationSearch(LocationCatalog.getDefault());
+        return shared;
+    }
+
+    /**
+     * Returns the catalog that is searched
+     * @return the catalog
+     */
+    public LocationCatalog getCatalog(){
+        return catalog;
+    }
+
+    /**
+     * Finds the locations whose city best matches the query
+     * @param query the city, or the start of it, as typed by the user
+     * @return up to RESULTS locations, best match first
+     */
+    public List<Location> find(String query){
+        return find(query, RESULTS);
+    }
+
+    /**
+     * Finds the locations whose city best matches the query
+     * @param query the city, or the start of it, as typed by the user
+     * @param limit the most locations to return
+     * @return up to limit locations, best match first
+     */
+    public List<Location> find(String query, int limit){
+        int[] found = search(query, limit);
+        List<Location> result = new ArrayList<>(found.length);
+        for(int i: found) result.add(catalog.get(i));
+        return result;
+    }
+
+    /**
+     * Finds the positions in the catalog of the locations whose city best
+     * matches the query
+     * @param query the city, or the start of it, as typed by the user
+     * @param limit the most positions to return
+     * @return up to limit positions, best match first
+     */
+    public int[] search(String query, int limit){
+        String q = normalize(query);
+        if(q.length() > MAX_QUERY) q = q.substring(0, MAX_QUERY);
+        if(q.isEmpty() || limit <= 0) return new int[0];
+
+        byte[] b = new byte[q.length()];
+        for(int i = 0; i < b.length; i++) b[i] = (byte) q.charAt(i);
+
+        Ranking r = new Ranking(limit);
+        prefixMatches(b, r);
+        if(b.length >= 3) fuzzyMatches(b, r);
+        return r.positions();
+    }
+
+    /**
+     * Ranks every name that starts with the query, exact matches first and
+     * then the shortest names
+     * @param q the normalized query
+     * @param r the ranking to add the matches to
+     */
+    private void prefixMatches(byte[] q, Ranking r){
+        //Find the first name that is not less than the query
+        int lo = 0, hi = sorted.length;
+        while(lo < hi){
+            int mid = (lo + hi) >>> 1;
+            if(comparePrefix(sorted[mid], q) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+
+        for(int k = lo; k < sorted.length; k++){
+            int i = sorted[k];
+            if(comparePrefix(i, q) != 0) break;
+            int extra = keyOffsets[i + 1] - keyOffsets[i] - q.length;
+            r.add(i, (extra == 0)?3:2 + 1f/(1 + extra));
+        }
+    }
+
+    /**
+     * Ranks the names that have enough of the trigrams of the query and do
+     * not start with it
+     * @param q the normalized query
+     * @param r the ranking to add the matches to
+     */
+    private void fuzzyMatches(byte[] q, Ranking r){
+        int[] grams = trigrams(q, 0, q.length, new int[0]);
+        int m = unique(grams);
+
+        //Count the trigrams each name shares with the query
+        short[] hits = new short[sorted.length];
+        int[] touched = new int[64];
+        int count = 0;
+        for(int k = 0; k < m; k++){
+            for(int p = gramStarts[grams[k]]; p < gramStarts[grams[k] + 1]; p++){
+                int i = postings[p];
+                if(hits[i]++ == 0){
+                    if(count == touched.length)
+                        touched = Arrays.copyOf(touched, count * 2);
+                    touched[count++] = i;
+                }
+            }
+        }
+
+        for(int k = 0; k < count; k++){
+            int i = touched[k];
+            if(hits[i] < MIN_SHARED*m || comparePrefix(i, q) == 0) continue;
+            r.add(i, hits[i] / (float) (m + gramCounts[i] - hits[i]));
+        }
+    }
+
+    /**
+     * Compares the start of a normalized name with a query
+     * @param i the position of the name
+     * @param q the normalized query
+     * @return 0 if the name starts with the query, otherwise less than or
+     * greater than 0 as the name sorts before or after the query
+     */
+    private int comparePrefix(int i, byte[] q){
+        int at = keyOffsets[i], end = keyOffsets[i + 1];
+        for(int k = 0; k < q.length; k++){
+            if(at + k == end) return -1;
+            int c = keys[at + k] - q[k];
+            if(c != 0) return c;
+        }
+        return 0;
+    }
+
+    /**
+     * Compares two normalized names
+     * @param a the position of the first name
+     * @param b the position of the second name
+     * @return less than, equal to or greater than 0 as the first name sorts
+     * before, with or after the second
+     */
+    private int compareKeys(int a, int b){
+        int i = keyOffsets[a], ie = keyOffsets[a + 1];
+        int j = keyOffsets[b], je = keyOffsets[b + 1];
+        while(i < ie && j < je){
+            int c = keys[i++] - keys[j++];
+            if(c != 0) return c;
+        }
+        return (ie - i) - (je - j);
+    }
+
+    /**
+     * Normalizes a name for searching: accents are taken off, letters and
+     * digits are made lower case, other letters become '_' and everything
+     * else becomes a single space
+     * @param s the name
+     * @return the normalized name, without spaces at either end
+     */
+    public static String normalize(String s){
+        String d = isAscii(s)?s:Normalizer.normalize(s, Normalizer.Form.NFD);
+        StringBuilder b = new StringBuilder(d.length());
+        for(int i = 0; i < d.length(); i++){
+            char c = Character.toLowerCase(d.charAt(i));
+            if(Character.getType(c) == Character.NON_SPACING_MARK) continue;
+
+            if((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) b.append(c);
+            else if(Character.isLetterOrDigit(c)) b.append((char) OTHER);
+            else if(b.length() > 0 && b.charAt(b.length() - 1) != ' ')
+                b.append(' ');
+        }
+        if(b.length() > 0 && b.charAt(b.length() - 1) == ' ')
+            b.setLength(b.length() - 1);
+        return b.toString();
+    }
+
+    /**
+     * Returns true if a string only has ASCII characters, which have no
+     * accents to take off
+     * @param s the string
+     * @return true if every character is ASCII
+     */
+    private static boolean isAscii(String s){
+        for(int i = 0; i < s.length(); i++){
+            if(s.charAt(i) > 127) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Lists the trigrams of a normalized name, with a space added before and
+     * after it
+     * @param k the array holding the name
+     * @param from the offset of the name
+     * @param to the offset after the name
+     * @param out an array to reuse if it is large enough
+     * @return the codes of the trigrams, ending with -1 if the array is
+     * longer than the number of trigrams
+     */
+    private static int[] trigrams(byte[] k, int from, int to, int[] out){
+        int n = to - from;
+        if(out.length < n + 1) out = new int[n + 1];
+        if(n == 0){
+            out[0] = -1;
+            return out;
+        }
+
+        int a = 0, b = symbol(k[from]);
+        for(int i = 0; i < n; i++){
+            int c = (i + 1 < n)?symbol(k[from + i + 1]):0;
+            out[i] = (a*SYMBOLS + b)*SYMBOLS + c;
+            a = b;
+            b = c;
+        }
+        if(out.length > n) out[n] = -1;
+        return out;
+    }
+
+    /**
+     * Sorts the trigrams listed by trigrams() and takes out repeats
+     * @param grams the trigrams, ending with -1 or the end of the array
+     * @return the number of different trigrams, at the start of the array
+     */
+    private static int unique(int[] grams){
+        int n = 0;
+        while(n < grams.length && grams[n] != -1) n++;
+        Arrays.sort(grams, 0, n);
+
+        int m = 0;
+        for(int i = 0; i < n; i++){
+            if(m == 0 || grams[m - 1] != grams[i]) grams[m++] = grams[i];
+        }
+        return m;
+    }
+
+    /**
+     * Returns the code of a character of a normalized name
+     * @param c the character
+     * @return the code, from 0 to SYMBOLS - 1
+     */
+    private static int symbol(byte c){
+        if(c >= 'a' && c <= 'z') return 1 + c - 'a';
+        if(c >= '0' && c <= '9') return 27 + c - '0';
+        return (c == ' ')?0:SYMBOLS - 1;
+    }
+
+    /**
+     * The best matches found so far, highest score first. Matches with the
+     * same score keep the order they were added in.
+     */
+    private static class Ranking{
+        private final int[] positions;
+        private final float[] scores;
+        private int size;
+
+        /**
+         * Creates an empty ranking
+         * @param limit the most matches to keep
+         */
+        Ranking(int limit){
+            positions = new int[limit];
+            scores = new float[limit];
+        }
+
+        /**
+         * Adds a match if it is one of the best so far
+         * @param i the position of the location
+         * @param score the score of the match
+         */
+        void add(int i, float score){
+            if(size == positions.length && score <= scores[size - 1]) return;
+
+            int at = Math.min(size, positions.length - 1);
+            while(at > 0 && scores[at - 1] < score){
+                positions[at] = positions[at - 1];
+                scores[at] = scores[at - 1];
+                at--;
+            }
+            positions[at] = i;
+            scores[at] = score;
+            if(size < positions.length) size++;
+        }
+
+        /**
+         * Returns the positions of the matches
+         * @return the positions, best match first
+         */
+        int[] positions(){
+            return Arrays.copyOf(positions, size);
+        }
+    }
+}
@@ -11,15 +11,28 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.io.Serializable;
+import team15.JSON.Compression;
 
 public class User implements Serializable{
 
     //Version 1 of User
     private static final long serialVersionUID = -5010634473804816694L;
+    
+    //Preset dictionary of user.dat when it is compressed, the class and field
+    //names written by serialization. It must not be changed once released.
+    private final static byte[] DICTIONARY = ("team15.UserOjects.Preferences"
+            + "humidityZminMaxTempZpressureZskyZsunZtempUnitsZtemperatureZwind"
+            + "java.util.ArrayListsizexpteam15.UserOjects.Locationcountry"
+            + "Ljava/lang/String;idlocationteam15.UserOjects.UsercurLocation"
+            + "Lteam15/UserOjects/Location;locationsLjava/util/ArrayList;pref"
+            + "Lteam15/UserOjects/Preferences;").getBytes(StandardCharsets.UTF_8);
 
     public Preferences pref;
     private final ArrayList<Location> locations;
@@ -102,19 +115,22 @@ public class User implements Serializable{
     }
 
     /**
-     * Saves the user object to user.dat
+     * Saves the user object to user.dat. The file is compressed if
+     * Compression is turned on.
      * @throws IOException thrown if there is a problem loading the object
      * @throws FileNotFoundException thrown if the file user.dat does not exist
      */
     public void saveUser() throws IOException, FileNotFoundException{
-        FileOutputStream fo = new FileOutputStream("user.dat");
+        OutputStream fo = new FileOutputStream("user.dat");
+        if(Compression.isEnabled()) fo = Compression.compress(fo, DICTIONARY);
         ObjectOutputStream out = new ObjectOutputStream(fo);
         out.writeObject(this);
         out.close();
     }            
     
     /**
-     * Loads the user object from the file user.dat
+     * Loads the user object from the file user.dat, whether it was saved
+     * compressed or not
      * @return a user object loaded from the file user.day
      * @throws IOException thrown if there is a problem saving the object
      * @throws FileNotFoundException thrown if the file user.dat does not exist
@@ -122,7 +138,8 @@ public class User implements Serializable{
      */
     public static User loadUser() throws IOException, FileNotFoundException, 
                                                          ClassNotFoundException{
-        FileInputStream fi = new FileInputStream("user.dat");
+        InputStream fi = Compression.decompress(new FileInputStream("user.dat"),
+                                                DICTIONARY);
         ObjectInputStream in = new ObjectInputStream(fi);
         User result = (User) in.readObject();
         return result;
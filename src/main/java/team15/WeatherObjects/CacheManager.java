@@ -0,0 +1,161 @@
+package team15.WeatherObjects;
+
+/**
+ * Keeps the weather cache folder within a maximum size and age.
+ *
+ * Records in the weather store are evicted when they have not been used for
+ * longer than the maximum age, and the records used longest ago are evicted
+ * when the store would grow past the maximum size.  Compacting the cache
+ * also shrinks the store file to fit the records that are left and deletes
+ * the .dat files that older versions wrote for each location.  Compaction is
+ * run in the background when the program starts.
+ *
+ * @author team15
+ */
+
+//Imports
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.List;
+
+public class CacheManager{
+    //Default limits of the cache
+    public final static long MAX_SIZE = 4L * 1024 * 1024;
+    public final static long MAX_AGE = 30L * 24 * 60 * 60 * 1000;
+
+    private static CacheManager shared;
+
+    private final File folder;
+    private final long maxSize, maxAge;
+
+    //Results of the last compaction
+    private int evicted, deleted;
+    private long compacted;
+
+    /**
+     * Creates a manager of the weather cache folder
+     * @param size the most bytes the cache may take
+     * @param age the time in milliseconds a record is kept after it was last
+     * used
+     */
+    public CacheManager(long size, long age){
+        folder = new File(WeatherStore.FILE).getParentFile();
+        maxSize = size;
+        maxAge = age;
+    }
+
+    /**
+     * Returns the manager of the default cache folder
+     * @return the shared manager
+     */
+    public static synchronized CacheManager getDefault(){
+        if(shared == null)
+            shared = new CacheManager(MAX_SIZE, MAX_AGE);
+        return shared;
+    }
+
+    /**
+     * Starts compacting the cache on a background thread
+     * @see #compact()
+     */
+    public void startCompaction(){
+        Thread t = new Thread("cache-compactor"){
+            public void run(){
+                try{
+                    compact();
+                }
+                catch(IOException ex){}
+            }
+        };
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Deletes the cache files of older versions, evicts the records that are
+     * too old or do not fit in the maximum size, and shrinks the store file
+     * to fit the records that are left. The store keeps evicting records as
+     * it fills up after this.
+     * @return the number of records and files removed
+     * @throws IOException thrown if the store can not be opened
+     */
+    public int compact() throws IOException{
+        int files = deleteLegacy();
+
+        WeatherStore store = WeatherStore.getDefault();
+        int max = Math.max(1, store.recordsIn(maxSize));
+        store.setLimit(max);
+        List<String> old = store.evict(System.currentTimeMillis() - maxAge, max);
+        store.trim();
+        store.force();
+
+        synchronized(this){
+            deleted = files;
+            evicted = old.size();
+            compacted = System.currentTimeMillis();
+        }
+        return files + old.size();
+    }
+
+    /**
+     * Returns the number of bytes the cache folder takes up now
+     * @return the total size of the files in the cache folder
+     */
+    public long getFootprint(){
+        File[] files = folder.listFiles();
+        if(files == null) return 0;
+
+        long total = 0;
+        for(File f: files){
+            if(f.isFile()) total += f.length();
+        }
+        return total;
+    }
+
+    /**
+     * Returns the most bytes the cache may take
+     * @return the maximum size in bytes
+     */
+    public long getMaxSize(){
+        return maxSize;
+    }
+
+    /**
+     * Returns the time a record is kept after it was last used
+     * @return the maximum age in milliseconds
+     */
+    public long getMaxAge(){
+        return maxAge;
+    }
+
+    /**
+     * Returns the footprint of the cache and the results of the last
+     * compaction
+     * @return a string with the size and limits of the cache
+     */
+    public synchronized String toString(){
+        return "CacheManager[footprint=" + getFootprint() + ", maxSize="
+                + maxSize + ", maxAge=" + maxAge + ", evicted=" + evicted
+                + ", deleted=" + deleted + ", compacted=" + compacted + "]";
+    }
+
+    /**
+     * Deletes the .dat files that older versions wrote for each location
+     * @return the number of files deleted
+     */
+    private int deleteLegacy(){
+        File[] legacy = folder.listFiles(new FileFilter(){
+            public boolean accept(File f){
+                return f.isFile() && f.getName().endsWith(".dat");
+            }
+        });
+        if(legacy == null) return 0;
+
+        int n = 0;
+        for(File f: legacy){
+            if(f.delete()) n++;
+        }
+        return n;
+    }
+}
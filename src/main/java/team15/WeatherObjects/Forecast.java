@@ -1,65 +1,562 @@
 package team15.WeatherObjects;
 
 /**
- * This class represents a forecast (either short term or long term).  It will
- * hold 8 weather objects in a list.
- * 
+ * This class represents a forecast (either short term or long term).  The
+ * entries of the forecast are stored as columns of primitive values, one
+ * array for each value, and are read through Entry views.
+ *
+ * The number of entries kept for each type of forecast (the horizon) can be
+ * changed with setHorizon().  The forecast panels display the first NUM
+ * entries.
+ *
+ * Forecasts can not be changed once they are built, so the placeholder
+ * forecasts returned by empty() are shared by every location.
+ *
  * @author team15
  */
 
 //Imports
+import java.io.IOException;
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.time.ZoneId;
+import javax.swing.ImageIcon;
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
+import team15.JSON.JSONExtractor;
+import team15.JSON.KeyPath;
+import team15.WeatherObjects.Weather.Field;
 import team15.WeatherObjects.Weather.WeatherType;
 
-public class Forecast extends ArrayList<Weather> implements Serializable{
+public class Forecast implements Serializable{
+    private static final long serialVersionUID = 3870617235262513154L;
+
+    //Number of entries displayed
     public final static int NUM = 8;
+
+    //Default horizons, 5 days of 3 hour entries and 8 daily entries
+    public final static int SHORT_HORIZON = 40;
+    public final static int LONG_HORIZON = 8;
+
+    //Current horizons and the extractors that read that many entries
+    private static int shortHorizon = SHORT_HORIZON;
+    private static int longHorizon = LONG_HORIZON;
+    private static JSONExtractor shortExtractor, longExtractor;
+
+    //Icon codes, indexed by the number of the icon times two plus one at night
+    private final static String[] iconCodes = new String[128];
+    private final static byte DEFAULT_ICON = 2;
+
+    //Largest forecast kept or read from a cache record
+    private final static int MAX_ENTRIES = 1024;
+
     public final WeatherType type;
-    public long lastPoll;
-    
+    private long lastPoll;
+
+    //Time zone the entries are displayed in, null for the zone of this computer
+    private final ZoneId zone;
+
+    //Columns
+    private final long[] time;
+    private final double[] temp, minTemp, maxTemp;
+    private final byte[] icon;
+    private final String[] condition;
+
+    //Entry views and their date strings, built the first time they are needed
+    private transient Entry[] entries;
+    private transient String[][] text;
+    private final static int MONTHDAY = 0, DAYTIME = 1, DATE = 2;
+
+    //Shared placeholders, indexed by type
+    private static final Forecast[] empties = {new Forecast(WeatherType.LOCAL),
+        new Forecast(WeatherType.SHORTTERM), new Forecast(WeatherType.LONGTERM)};
+
+    static{
+        for(int i = 0; i < iconCodes.length / 2; i++){
+            String n = (i < 10)?("0" + i):String.valueOf(i);
+            iconCodes[2*i] = n + "d";
+            iconCodes[2*i + 1] = n + "n";
+        }
+    }
+
+    /**
+     * A view of one entry of the forecast
+     */
+    public class Entry{
+        private final int i;
+
+        private Entry(int index){
+            i = index;
+        }
+
+        /**
+         * Returns the day of the month for this entry.
+         * @return a string containing the day of the month
+         */
+        public String getMonthDay(){
+            return text(i, MONTHDAY);
+        }
+
+        /**
+         * Returns the time of the day for this entry.
+         * @return a string containing the time of the day
+         */
+        public String getDayTime(){
+            return text(i, DAYTIME);
+        }
+
+        /**
+         * Returns the full date for this entry
+         * @return a string containing the full date
+         */
+        public String getDate(){
+            return text(i, DATE);
+        }
+
+        /**
+         * Returns the sky condition for this entry
+         * @return a string containing the sky condition
+         */
+        public String getCondition(){
+            return WeatherFormat.condition(condition[i]);
+        }
+
+        /**
+         * Returns the icon for the sky condition of this entry
+         * @return the sky condition icon
+         */
+        public ImageIcon getIcon(){
+            return Weather.getIcon(iconCodes[icon[i]]);
+        }
+
+        /**
+         * Returns the temperature of this entry in the specified system
+         * @param system Represents the temperature system to use.
+         * False = Fahrenheit, True = Celsius
+         * @return a string representing the temperature
+         */
+        public String getTemp(boolean system){
+            return WeatherFormat.temp(temp[i], system);
+        }
+
+        /**
+         * Returns the minimum temperature of this entry in the specified system
+         * @param system Represents the temperature system to use.
+         * False = Fahrenheit, True = Celsius
+         * @return a string representing the minimum temperature
+         */
+        public String getMinTemp(boolean system){
+            return WeatherFormat.temp(minTemp[i], system);
+        }
+
+        /**
+         * Returns the maximum temperature of this entry in the specified system
+         * @param system Represents the temperature system to use.
+         * False = Fahrenheit, True = Celsius
+         * @return a string representing the maximum temperature
+         */
+        public String getMaxTemp(boolean system){
+            return WeatherFormat.temp(maxTemp[i], system);
+        }
+    }
+
     /**
      * Creates a blank forecast object
      */
     public Forecast(){
-        super();
-        for(int i = 0; i < NUM; i++){
-            this.add(new Weather(WeatherType.SHORTTERM));
-        }
-        type = WeatherType.SHORTTERM;
-        lastPoll = 0;
+        this(WeatherType.SHORTTERM);
     }
-    
+
     /**
-     * Creates a new default forecast object with weather objects of the
-     * specified type
-     * @param t the type of weather objects contained in the forecast
+     * Creates a new default forecast object of the specified type with NUM
+     * blank entries
+     * @param t the type of the forecast
      */
     public Forecast(WeatherType t){
-        super();
-        for(int i = 0; i < NUM; i++){
-            this.add(new Weather(t));
-        }
-        type = t;
+        this(t, NUM);
         lastPoll = 0;
     }
-    
+
     /**
      * Creates a new forecast from the given json object
-     * @param j the json that contains all the data for the weather objects
-     * @param t the type of weather objects contained in this forecast
+     * @param j the json that contains all the data for the forecast
+     * @param t the type of the forecast
+     * @throws JSONException thrown if the forecast list is missing or has
+     * fewer than NUM entries
      */
-    public Forecast(JSONObject j, WeatherType t){
-        super();
-        
+    public Forecast(JSONObject j, WeatherType t) throws JSONException{
+        this(t, Math.min(j.getJSONArray("list").length(), getHorizon(t)));
+
         JSONArray forecast = j.getJSONArray("list");
-        
-        for(int i = 0; i < NUM; i++){
-            this.add(new Weather(forecast.getJSONObject(i), t));
+        KeyPath[] paths = Weather.pathArray(t);
+        Field[] fields = Weather.fieldArray(t);
+
+        if(forecast.length() < NUM)
+            throw new JSONException("Forecast has only " + forecast.length()
+                                                            + " entries");
+
+        for(int i = 0; i < time.length; i++){
+            JSONObject entry = forecast.getJSONObject(i);
+            for(int k = 0; k < paths.length; k++){
+                Object value = paths[k].resolve(entry);
+                if(value != null) set(i, fields[k], value.toString());
+            }
         }
-        
-        type = t;
+
         lastPoll = System.currentTimeMillis();
     }
+
+    /**
+     * Creates a new forecast from the rows read by the extractor for the given
+     * type
+     * @param rows the values read for each element of the forecast list
+     * @param t the type of the forecast
+     * @throws JSONException thrown if there are fewer than NUM rows
+     * @see #extractor(WeatherType)
+     */
+    Forecast(String[][] rows, WeatherType t) throws JSONException{
+        this(t, Math.min(rows.length, getHorizon(t)));
+        check(rows);
+
+        Field[] fields = Weather.fieldArray(t);
+        for(int i = 0; i < time.length; i++){
+            for(int k = 0; k < fields.length; k++){
+                if(rows[i][k] != null) set(i, fields[k], rows[i][k]);
+            }
+        }
+
+        lastPoll = System.currentTimeMillis();
+    }
+
+    /**
+     * Checks that the rows read by the extractor are enough to build a
+     * forecast from
+     * @param rows the values read for each element of the forecast list
+     * @throws JSONException thrown if there are fewer than NUM rows
+     */
+    static void check(String[][] rows) throws JSONException{
+        if(rows.length < NUM)
+            throw new JSONException("Forecast has only " + rows.length
+                                                            + " entries");
+    }
+
+    /**
+     * Creates a forecast of the given type with n blank entries
+     * @param t the type of the forecast
+     * @param n the number of entries
+     */
+    private Forecast(WeatherType t, int n){
+        type = t;
+        zone = null;
+        time = new long[n];
+        temp = new double[n];
+        minTemp = new double[n];
+        maxTemp = new double[n];
+        icon = new byte[n];
+        condition = new String[n];
+
+        for(int i = 0; i < n; i++){
+            time[i] = Weather.NO_TIME;
+            temp[i] = Double.NaN;
+            minTemp[i] = Double.NaN;
+            maxTemp[i] = Double.NaN;
+            icon[i] = DEFAULT_ICON;
+        }
+    }
+
+    /**
+     * Creates a copy of the given forecast with a new last poll time and time
+     * zone. The columns are shared with the original.
+     * @param f the forecast to copy
+     * @param poll the last poll time of the copy
+     * @param z the time zone of the copy
+     */
+    private Forecast(Forecast f, long poll, ZoneId z){
+        type = f.type;
+        lastPoll = poll;
+        zone = z;
+        time = f.time;
+        temp = f.temp;
+        minTemp = f.minTemp;
+        maxTemp = f.maxTemp;
+        icon = f.icon;
+        condition = f.condition;
+        entries = null;
+        text = (z == f.zone)?f.text:null;
+    }
+
+    /**
+     * Returns the shared placeholder forecast for the given type. It has NUM
+     * blank entries and a last poll time of 0.
+     * @param t the type of the forecast
+     * @return the placeholder for the type
+     */
+    public static Forecast empty(WeatherType t){
+        return empties[t.ordinal()];
+    }
+
+    /**
+     * Returns a copy of this forecast with the given last poll time
+     * @param time the new last poll time
+     * @return a copy of this forecast polled at the given time
+     */
+    public Forecast withLastPoll(long time){
+        return new Forecast(this, time, zone);
+    }
+
+    /**
+     * Returns a copy of this forecast that is displayed in the given time zone
+     * @param z the time zone of the location of the forecast
+     * @return a copy of this forecast in the given zone, or this forecast if
+     * it is already in that zone
+     */
+    public Forecast withZone(ZoneId z){
+        if(z.equals(zone)) return this;
+        return new Forecast(this, lastPoll, z);
+    }
+
+    /**
+     * Returns the time zone the entries of this forecast are displayed in
+     * @return the time zone of the location, or the time zone of this
+     * computer if it is not known
+     */
+    public ZoneId getZone(){
+        return (zone == null)?ZoneId.systemDefault():zone;
+    }
+
+    /**
+     * Returns the time this forecast was last polled at
+     * @return the time in milliseconds
+     */
+    public long getLastPoll(){
+        return lastPoll;
+    }
+
+    /**
+     * Returns the number of entries in the forecast
+     * @return the number of entries
+     */
+    public int size(){
+        return time.length;
+    }
+
+    /**
+     * Returns a view of the given entry of the forecast
+     * @param i the index of the entry
+     * @return a view of the entry
+     */
+    public Entry get(int i){
+        if(i < 0 || i >= time.length)
+            throw new IndexOutOfBoundsException("Entry " + i);
+
+        Entry[] e = entries;
+        if(e == null) entries = e = new Entry[time.length];
+        if(e[i] == null) e[i] = new Entry(i);
+        return e[i];
+    }
+
+    /**
+     * Returns one of the date strings of the given entry. The strings of an
+     * entry are built the first time one of them is needed.
+     * @param i the index of the entry
+     * @param k the index of the string, for example MONTHDAY
+     * @return the date string
+     */
+    private String text(int i, int k){
+        String[][] t = text;
+        if(t == null) text = t = new String[time.length][];
+
+        String[] row = t[i];
+        if(row == null){
+            WeatherFormat f = WeatherFormat.forZone(getZone());
+            t[i] = row = new String[]{f.monthDay(time[i]), f.dayTime(time[i]),
+                f.date(time[i])};
+        }
+        return row[k];
+    }
+
+    /**
+     * Returns the lowest temperature of the entries in the given range. Both
+     * the temperature and the minimum temperature of each entry are checked.
+     * @param from the index of the first entry
+     * @param to the index after the last entry
+     * @return the lowest temperature in Celsius, or NaN if there is none
+     */
+    public double getLow(int from, int to){
+        double low = Double.NaN;
+        for(int i = from; i < to; i++){
+            if(temp[i] < low || Double.isNaN(low)) low = temp[i];
+            if(minTemp[i] < low || Double.isNaN(low)) low = minTemp[i];
+        }
+        return low;
+    }
+
+    /**
+     * Returns the highest temperature of the entries in the given range. Both
+     * the temperature and the maximum temperature of each entry are checked.
+     * @param from the index of the first entry
+     * @param to the index after the last entry
+     * @return the highest temperature in Celsius, or NaN if there is none
+     */
+    public double getHigh(int from, int to){
+        double high = Double.NaN;
+        for(int i = from; i < to; i++){
+            if(temp[i] > high || Double.isNaN(high)) high = temp[i];
+            if(maxTemp[i] > high || Double.isNaN(high)) high = maxTemp[i];
+        }
+        return high;
+    }
+
+    /**
+     * Returns the number of entries kept for the given type of forecast
+     * @param t the type of the forecast
+     * @return the number of entries kept
+     */
+    public static int getHorizon(WeatherType t){
+        return (t == WeatherType.LONGTERM)?longHorizon:shortHorizon;
+    }
+
+    /**
+     * Sets the number of entries kept for the given type of forecast. The
+     * horizon can not be less than NUM, or more than the 1024 entries a cache
+     * record holds.  It applies to forecasts built after the change.
+     * @param t the type of the forecast
+     * @param n the number of entries to keep
+     */
+    public static synchronized void setHorizon(WeatherType t, int n){
+        n = Math.min(Math.max(n, NUM), MAX_ENTRIES);
+        if(t == WeatherType.LONGTERM){
+            longHorizon = n;
+            longExtractor = null;
+        }
+        else{
+            shortHorizon = n;
+            shortExtractor = null;
+        }
+    }
+
+    /**
+     * Returns the extractor that reads the entries of the given type of
+     * forecast from a response, up to the horizon of the type
+     * @param t the type of the forecast
+     * @return the extractor for the type
+     */
+    static synchronized JSONExtractor extractor(WeatherType t){
+        KeyPath[] paths = Weather.pathArray(t);
+        if(t == WeatherType.LONGTERM){
+            if(longExtractor == null)
+                longExtractor = new JSONExtractor("list", paths, longHorizon);
+            return longExtractor;
+        }
+        if(shortExtractor == null)
+            shortExtractor = new JSONExtractor("list", paths, shortHorizon);
+        return shortExtractor;
+    }
+
+    /**
+     * Writes this forecast to a cache record. The values are written a
+     * column at a time, and each time after the first is written as the
+     * difference from the time before it.
+     * @param out the record being written
+     * @see WeatherCodec
+     */
+    void encode(WeatherCodec.Out out){
+        out.putByte(type.ordinal());
+        out.putLong(lastPoll);
+        out.putZone(zone);
+        out.putLong(time.length);
+
+        long prev = 0;
+        for(long t: time){
+            if(t == Weather.NO_TIME) out.putTime(t);
+            else{
+                out.putTime(t - prev);
+                prev = t;
+            }
+        }
+        for(String c: condition) out.putCondition(c);
+        for(byte b: icon) out.putByte(b);
+        for(double v: temp) out.putFixed(v);
+        for(double v: minTemp) out.putFixed(v);
+        for(double v: maxTemp) out.putFixed(v);
+    }
+
+    /**
+     * Reads a forecast written by encode() from a cache record
+     * @param in the record being read
+     * @return the forecast
+     * @throws IOException thrown if the record is cut off or not valid
+     */
+    static Forecast decode(WeatherCodec.In in) throws IOException{
+        WeatherType t = in.getType();
+        long poll = in.getLong();
+        ZoneId z = in.getZone();
+        long n = in.getLong();
+        if(n > MAX_ENTRIES)
+            throw new IOException("Weather record has a bad forecast size");
+
+        Forecast f = new Forecast(t, (int) n);
+        long prev = 0;
+        for(int i = 0; i < n; i++){
+            long d = in.getTime();
+            if(d != Weather.NO_TIME) f.time[i] = prev = prev + d;
+        }
+        for(int i = 0; i < n; i++) f.condition[i] = in.getCondition();
+        for(int i = 0; i < n; i++){
+            int b = in.getByte();
+            f.icon[i] = (b < iconCodes.length)?(byte) b:DEFAULT_ICON;
+        }
+        for(int i = 0; i < n; i++) f.temp[i] = in.getFixed();
+        for(int i = 0; i < n; i++) f.minTemp[i] = in.getFixed();
+        for(int i = 0; i < n; i++) f.maxTemp[i] = in.getFixed();
+        return new Forecast(f, poll, z);
+    }
+
+    /**
+     * Stores a value read from a response in the given column
+     * @param i the index of the entry
+     * @param f the field the value belongs to
+     * @param v the value read from the response
+     */
+    private void set(int i, Field f, String v){
+        try{
+            switch (f) {
+                case TIME: time[i] = Long.parseLong(v); break;
+                case CONDITION: condition[i] = v.intern(); break;
+                case ICON: icon[i] = encodeIcon(v); break;
+                case TEMP: temp[i] = Double.parseDouble(v); break;
+                case MINTEMP: minTemp[i] = Double.parseDouble(v); break;
+                case MAXTEMP: maxTemp[i] = Double.parseDouble(v); break;
+                default: break;
+            }
+        }
+        catch(NumberFormatException ex){}
+    }
+
+    /**
+     * Converts an OpenWeather icon code into its index in iconCodes
+     * @param code the icon code, for example "10n"
+     * @return the index of the code, or the default icon if it is not valid
+     */
+    static byte encodeIcon(String code){
+        if(code.length() != 3) return DEFAULT_ICON;
+        int tens = Character.digit(code.charAt(0), 10);
+        int ones = Character.digit(code.charAt(1), 10);
+        char d = code.charAt(2);
+        if(tens < 0 || ones < 0 || (d != 'd' && d != 'n')) return DEFAULT_ICON;
+        
+        int n = tens*10 + ones;
+        if(n >= iconCodes.length / 2) return DEFAULT_ICON;
+        return (byte) (2*n + ((d == 'n')?1:0));
+    }
+
+    /**
+     * Converts an index in iconCodes back into an OpenWeather icon code
+     * @param i the index of the code
+     * @return the icon code, or the default icon if the index is not valid
+     */
+    static String decodeIcon(int i){
+        if(i < 0 || i >= iconCodes.length) return iconCodes[DEFAULT_ICON];
+        return iconCodes[i];
+    }
 }
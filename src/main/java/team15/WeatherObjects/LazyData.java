@@ -0,0 +1,178 @@
+package team15.WeatherObjects;
+
+/**
+ * One set of weather data of a location that is kept as the body of its
+ * response until it is first needed.  A refresh only checks each response
+ * as it arrives, without parsing it, and the Weather or Forecast is read
+ * from the body and built the first time get() is called.  Data that is
+ * refreshed but never displayed is never parsed.
+ *
+ * Data that was not changed by a refresh is made from the data held before
+ * it, for example with a new poll time, also when it is first needed.  If a
+ * body can not be built after all, the data is made from the last data that
+ * was built in the same way.  The body and the data held before are dropped
+ * once the value is built.
+ *
+ * @author team15
+ */
+
+//Imports
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.function.UnaryOperator;
+import team15.JSON.Payload;
+
+final class LazyData<T> implements Serializable{
+    private static final long serialVersionUID = 7362119840554316021L;
+
+    /**
+     * Builds the value of a data set from the body of its response
+     * @param <T> the type of the value
+     */
+    static interface Builder<T>{
+        /**
+         * Reads the body of a response and builds a new value from it
+         * @param p the response, already checked
+         * @return the value
+         * @throws Exception thrown if the value can not be built
+         */
+        public T build(Payload p) throws Exception;
+    }
+
+    //Response and builder of a value built from a response
+    private transient Payload payload;
+    private transient Builder<T> builder;
+
+    //Data held before and the change made to it. Data built from a response
+    //holds the last data that was built, which is used if it fails to build.
+    private transient LazyData<T> previous;
+    private transient UnaryOperator<T> change;
+
+    private T value;
+
+    /**
+     * Creates data that is already built
+     * @param v the value
+     */
+    LazyData(T v){
+        value = v;
+    }
+
+    /**
+     * Creates data that is built from a response when it is first needed
+     * @param p the response
+     * @param b the builder of the value
+     * @param prev the data held before the response
+     * @param keep the change made to the last data that was built, if the
+     * response can not be built
+     */
+    LazyData(Payload p, Builder<T> b, LazyData<T> prev, UnaryOperator<T> keep){
+        payload = p;
+        builder = b;
+        previous = prev.lastBuilt();
+        change = keep;
+    }
+
+    /**
+     * Creates data that is made from the data held before when it is first
+     * needed
+     * @param prev the data held before
+     * @param c the change to make to the data held before
+     */
+    LazyData(LazyData<T> prev, UnaryOperator<T> c){
+        //Join changes in a row, so that only one is held
+        synchronized(prev){
+            if(prev.builder == null && prev.change != null){
+                previous = prev.previous;
+                change = join(prev.change, c);
+            }
+            else{
+                previous = prev;
+                change = c;
+            }
+        }
+    }
+
+    /**
+     * Returns the value, building it if it has not been built yet
+     * @return the value
+     */
+    synchronized T get(){
+        if(builder != null){
+            try{
+                value = builder.build(payload);
+            }
+            catch(Exception ex){
+                value = change.apply(previous.get());
+            }
+        }
+        else if(change != null) value = change.apply(previous.get());
+        else return value;
+
+        payload = null;
+        builder = null;
+        previous = null;
+        change = null;
+        return value;
+    }
+
+    /**
+     * Returns the value if it can be had without reading a response, or else
+     * the last value that was built before the response
+     * @return the value, or the last value that was built
+     */
+    synchronized T peek(){
+        return isUnread()?lastBuilt().get():get();
+    }
+
+    /**
+     * Returns true if the value has been built
+     * @return true if the value is built
+     */
+    synchronized boolean isBuilt(){
+        return builder == null && change == null;
+    }
+
+    /**
+     * Returns true if getting the value would read a response
+     * @return true if there is a response that has not been read
+     */
+    synchronized boolean isUnread(){
+        return builder != null || (change != null && previous.isUnread());
+    }
+
+    /**
+     * Returns the last data that was built, which is this data if it is built
+     * @return the data
+     */
+    private synchronized LazyData<T> lastBuilt(){
+        return isBuilt()?this:previous.lastBuilt();
+    }
+
+    /**
+     * Returns a change that makes one change and then another
+     * @param <T> the type of the value changed
+     * @param first the change made first
+     * @param then the change made after it
+     * @return the joined change
+     */
+    private static <T> UnaryOperator<T> join(final UnaryOperator<T> first,
+                                             final UnaryOperator<T> then){
+        return new UnaryOperator<T>(){
+            public T apply(T v){
+                return then.apply(first.apply(v));
+            }
+        };
+    }
+
+    /**
+     * Builds the value before it is serialized
+     * @param out the stream the data is written to
+     * @throws IOException thrown if the data can not be written
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException{
+        get();
+        out.defaultWriteObject();
+    }
+}
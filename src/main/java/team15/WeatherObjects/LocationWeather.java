@@ -7,14 +7,24 @@ package team15.WeatherObjects;
  */
 
 //Imports
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.Date;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import org.json.JSONException;
+import team15.JSON.Compression;
+import team15.JSON.Payload;
 import team15.JSON.URLToJSON;
 import team15.UserOjects.Location;
 
@@ -23,14 +33,26 @@ public class LocationWeather implements Serializable{
     private static final long serialVersionUID = -651678696620342392L;
     
     //Update weather data constraints
-    private final static long REFRESH = 600000;
+    final static long REFRESH = RefreshPolicy.LOCAL_INTERVAL;
+    
+    //System property that sets the address of the weather API, used to
+    //point the program at another server such as a test stub
+    public final static String API_PROPERTY = "team15.api";
+    private final static String API_URL = "http://api.openweathermap.org/data/2.5/";
+    
+    //Executor that runs the weather requests, shared by all locations
+    private static Executor executor = defaultExecutor();
     
     //URL variables
     private final String localURL, shortURL, longURL;
     
-    //Forecast variables
-    private Weather current;
-    private Forecast shortTerm, longTerm;
+    //Forecast variables, replaced by the refresh thread and built from their
+    //responses when they are first needed
+    private volatile LazyData<Weather> current;
+    private volatile LazyData<Forecast> shortTerm, longTerm;
+    
+    //Time zone of the current weather, known without building it
+    private transient volatile ZoneId zone;
     
     //Location variable
     private Location loc;
@@ -38,6 +60,27 @@ public class LocationWeather implements Serializable{
     //Time of last refresh
     private long lastRefresh;
     
+    //When each data set is next due, indexed by LOCAL, SHORT and LONG
+    private final PollState[] polls = {PollState.NONE, PollState.NONE, 
+                                       PollState.NONE};
+    private final static int LOCAL = 0, SHORT = 1, LONG = 2;
+    
+    //Refresh that is running, if any
+    private transient CompletableFuture<WeatherSnapshot> pending;
+    
+    /**
+     * Receives the data of a location after it has been refreshed in the
+     * background
+     * @see LocationWeather#read(Listener)
+     */
+    public static interface Listener{
+        /**
+         * Called when a refresh is done
+         * @param fresh the refreshed data
+         */
+        public void updated(WeatherSnapshot fresh);
+    }
+    
     /**
      * Makes a new default object with filler forecast variables.
      */
@@ -45,33 +88,52 @@ public class LocationWeather implements Serializable{
         localURL = "";
         shortURL = "";
         longURL = "";
-        current = new Weather(Weather.WeatherType.LOCAL);
-        shortTerm = new Forecast(Weather.WeatherType.SHORTTERM);
-        longTerm = new Forecast(Weather.WeatherType.LONGTERM);
+        current = new LazyData<>(Weather.empty(Weather.WeatherType.LOCAL));
+        shortTerm = new LazyData<>(Forecast.empty(Weather.WeatherType.SHORTTERM));
+        longTerm = new LazyData<>(Forecast.empty(Weather.WeatherType.LONGTERM));
         lastRefresh = 0;
         loc = new Location();
     }
     
     /**
-     * Makes a new LocationWeather object for the given location.
+     * Makes a new LocationWeather object for the given location, loading its
+     * data from the cache and then refreshing any of it that is out of date.
      * @param location the location that the data contained in this object
      * references
      * @see Location
      */
     public LocationWeather(Location location){
+        this(location, true);
+    }
+    
+    /**
+     * Makes a new LocationWeather object for the given location, loading its
+     * data from the cache.
+     * @param location the location that the data contained in this object
+     * references
+     * @param fetch true to wait for the data that is out of date to be
+     * refreshed, false to return with the cached data
+     * @see Location
+     * @see #read(Listener)
+     */
+    public LocationWeather(Location location, boolean fetch){
         this.loc = location;
         
         //Make the urls for each type of build
-        String prefix = "http://api.openweathermap.org/data/2.5/";
+        String prefix = System.getProperty(API_PROPERTY, API_URL);
+        if(!prefix.endsWith("/")) prefix += "/";
         String id = loc.getID();
         this.localURL = prefix + "weather?id=" + id +"&units=metric";
         this.shortURL = prefix + "forecast?id=" + id 
-	    + "&mode=json&units=metric";
-        this.longURL = prefix + "forecast/daily?id=" + id + "&mode=json&units=metric&cnt=8";
+	    + "&mode=json&units=metric&cnt=" 
+            + Forecast.getHorizon(Weather.WeatherType.SHORTTERM);
+        this.longURL = prefix + "forecast/daily?id=" + id 
+            + "&mode=json&units=metric&cnt=" 
+            + Forecast.getHorizon(Weather.WeatherType.LONGTERM);
         
-        current = new Weather(Weather.WeatherType.LOCAL);
-        shortTerm = new Forecast(Weather.WeatherType.SHORTTERM);
-        longTerm = new Forecast(Weather.WeatherType.LONGTERM);
+        current = new LazyData<>(Weather.empty(Weather.WeatherType.LOCAL));
+        shortTerm = new LazyData<>(Forecast.empty(Weather.WeatherType.SHORTTERM));
+        longTerm = new LazyData<>(Forecast.empty(Weather.WeatherType.LONGTERM));
         
         //Try to load previous data from the cache
         try{
@@ -81,7 +143,7 @@ public class LocationWeather implements Serializable{
             lastRefresh = 0;
         }
         
-        this.updateForecasts();
+        if(fetch) this.updateForecasts();
     }
     
     /**
@@ -90,7 +152,7 @@ public class LocationWeather implements Serializable{
      * @return the weather object that represents the current weather
      */
     public Weather getLocal(){
-        return current;
+        return current.get();
     }
     
     /**
@@ -101,7 +163,7 @@ public class LocationWeather implements Serializable{
      * forecast
      */
     public Forecast getShortTerm(){
-        return shortTerm;
+        return shortTerm.get();
     }
     
     /**
@@ -112,72 +174,368 @@ public class LocationWeather implements Serializable{
      * forecast
      */
     public Forecast getLongTerm(){
-        return longTerm;
+        return longTerm.get();
     }
     
     /**
-     * Updates all the weather objects contained in the object. If any of them
-     * fail to build none of them are updated.
+     * Updates all the weather objects contained in the object, waiting for
+     * the requests to finish. Any of them that fail to build keep their old
+     * data.
      * @return A blank string if the weather was updated successfully otherwise 
      * an error message describing the error.
      */
     public final String updateForecasts(){        
-        Long newRef = System.currentTimeMillis();
+        return refresh().join().getError();
+    }
+    
+    /**
+     * Returns the data that is held now, without waiting for the network
+     * @return a snapshot of the current data, marked stale if some of it is
+     * older than the refresh interval
+     */
+    public synchronized WeatherSnapshot snapshot(){
+        return snapshot("");
+    }
+    
+    /**
+     * Returns the data that is held now and, if it is stale, refreshes it in
+     * the background. The listener is given the new data when the refresh is
+     * done. It is called on a background thread, so a GUI should pass the
+     * snapshot to the event dispatch thread before displaying it.
+     * @param l the listener that is given the refreshed data
+     * @return a snapshot of the data held now
+     */
+    public WeatherSnapshot read(final Listener l){
+        WeatherSnapshot s = snapshot();
+        if(s.isStale()){
+            refresh().thenAccept(new Consumer<WeatherSnapshot>(){
+                public void accept(WeatherSnapshot fresh){
+                    l.updated(fresh);
+                }
+            });
+        }
+        return s;
+    }
+    
+    /**
+     * Starts a request for each data set that is out of date. If a refresh is
+     * already running it is returned instead of starting another one.
+     * @return a future that completes with the refreshed data once every
+     * request is done. It does not complete with an error, failed requests
+     * are reported by WeatherSnapshot.getError().
+     */
+    public synchronized CompletableFuture<WeatherSnapshot> refresh(){
+        if(pending != null && !pending.isDone()) return pending;
+        
+        final long newRef = System.currentTimeMillis();
+        
+        //Start a request for each data set that is due
+        final CompletableFuture<Payload> c = due(LOCAL, newRef)?
+                            fetch(localURL, polls[LOCAL].validators()):null;
+        final CompletableFuture<Payload> s = due(SHORT, newRef)?
+                            fetch(shortURL, polls[SHORT].validators()):null;
+        final CompletableFuture<Payload> l = due(LONG, newRef)?
+                            fetch(longURL, polls[LONG].validators()):null;
+        
+        CompletableFuture<?>[] all = {
+            (c == null)?CompletableFuture.completedFuture(null):c,
+            (s == null)?CompletableFuture.completedFuture(null):s,
+            (l == null)?CompletableFuture.completedFuture(null):l};
+        
+        pending = CompletableFuture.allOf(all).handle(
+                            new BiFunction<Void, Throwable, WeatherSnapshot>(){
+            public WeatherSnapshot apply(Void v, Throwable t){
+                return finish(newRef, c, s, l);
+            }
+        });
+        return pending;
+    }
+    
+    /**
+     * Stores the results of a refresh. Data sets whose request failed or
+     * whose response could not be read keep their old data, and data sets
+     * whose response was 304 Not Modified or has not changed since the last
+     * request are not read again. New responses are only checked here, the
+     * data is read from them and built when it is first needed. The location
+     * is only saved to the cache if a new response was received.
+     * @param newRef the time the refresh started
+     * @param fetchC the current weather request, or null
+     * @param fetchS the short term request, or null
+     * @param fetchL the long term request, or null
+     * @return a snapshot of the refreshed data
+     */
+    private synchronized WeatherSnapshot finish(long newRef, 
+            CompletableFuture<Payload> fetchC, CompletableFuture<Payload> fetchS, 
+            CompletableFuture<Payload> fetchL){
         String result = "";
         
-        //Attempt to buiild new weather objects for the given location
-        if((newRef - current.lastPoll) > REFRESH){
+        //Keep the old data for any request that failed
+        boolean changed = false;
+        Weather.WeatherType t;
+        Payload p;
+        if(fetchC != null){
+            t = Weather.WeatherType.LOCAL;
             try{
-                Weather tempC = new Weather(URLToJSON.makeJSON(localURL), 
-					    Weather.WeatherType.LOCAL);
-                current = tempC;
+                p = receive(LOCAL, t, fetchC, newRef);
+                current = (p == null)?
+                        new LazyData<>(current, keepWeather(newRef))
+                        :new LazyData<>(p, localBuilder(newRef), current, 
+                                        keepWeather(newRef));
+                changed |= (p != null);
             }
             catch(Exception ex){
-                current.lastPoll = newRef;
+                current = new LazyData<>(current, keepWeather(newRef));
+                polls[LOCAL] = polls[LOCAL].failed(t, newRef);
                 result = "Error updating weather data.";
             }
         }
-        if((newRef - shortTerm.lastPoll) > REFRESH){
+        
+        //The forecasts are displayed in the time zone of the location
+        final ZoneId local = getZone();
+        if(fetchS != null){
+            t = Weather.WeatherType.SHORTTERM;
             try{
-                Forecast tempS = new Forecast(URLToJSON.makeJSON(shortURL), 
-					      Weather.WeatherType.SHORTTERM);
-		shortTerm = tempS;
+                p = receive(SHORT, t, fetchS, newRef);
+                shortTerm = (p == null)?
+                        new LazyData<>(shortTerm, keepForecast(newRef, local))
+                        :new LazyData<>(p, forecastBuilder(t, newRef, local), 
+                                        shortTerm, keepForecast(newRef, local));
+                changed |= (p != null);
             }
             catch(Exception ex){
-                shortTerm.lastPoll = newRef;
+                shortTerm = new LazyData<>(shortTerm, keepForecast(newRef, local));
+                polls[SHORT] = polls[SHORT].failed(t, newRef);
                 result = "Error updating weather data.";
             }
         }
-        if((newRef - longTerm.lastPoll) > REFRESH){
+        else if(fetchC != null){
+            shortTerm = new LazyData<>(shortTerm, keepZone(local));
+        }
+        if(fetchL != null){
+            t = Weather.WeatherType.LONGTERM;
             try{
-                Forecast tempL = new Forecast(URLToJSON.makeJSON(longURL), 
-					      Weather.WeatherType.LONGTERM);
-		longTerm = tempL;
+                p = receive(LONG, t, fetchL, newRef);
+                longTerm = (p == null)?
+                        new LazyData<>(longTerm, keepForecast(newRef, local))
+                        :new LazyData<>(p, forecastBuilder(t, newRef, local), 
+                                        longTerm, keepForecast(newRef, local));
+                changed |= (p != null);
             }
             catch(Exception ex){
-                longTerm.lastPoll = newRef;
+                longTerm = new LazyData<>(longTerm, keepForecast(newRef, local));
+                polls[LONG] = polls[LONG].failed(t, newRef);
                 result = "Error updating weather data.";
             }
         }
+        else if(fetchC != null){
+            longTerm = new LazyData<>(longTerm, keepZone(local));
+        }
         
         //Updated the refresh time tracker
         lastRefresh = newRef;
         
-        //Try to cache the new data
-        try {
-            this.save();
-        } catch (IOException ex) {}           
+        //Queue the data to be cached if a response has changed it. Only the
+        //poll times change otherwise, and they are not worth a write.
+        if(changed) this.save();
         
-        return result;
+        return snapshot(result);
+    }
+    
+    /**
+     * Checks the response to the request of a data set and records it in
+     * polls. Nothing is recorded if the request failed or the response does
+     * not hold the data asked for, so such a response is not taken as the
+     * last one received. The response is not parsed, but the time zone of
+     * a new current weather is taken from it.
+     * @param i the index of the data set in polls
+     * @param t the type of the data set
+     * @param fetch the finished request
+     * @param newRef the time the refresh started
+     * @return the response, or null if it has not changed since the last
+     * request
+     * @throws Exception thrown if the request failed or the response is not
+     * the data asked for
+     * @see Weather#check(Weather.WeatherType, Payload)
+     */
+    private Payload receive(int i, Weather.WeatherType t, 
+                    CompletableFuture<Payload> fetch, long newRef) throws Exception{
+        Payload p = fetch.join();
+        boolean changed = !polls[i].isSame(p);
+        if(changed){
+            Map<String, String> keys = Weather.check(t, p);
+            if(t == Weather.WeatherType.LOCAL) zone = Weather.zoneOf(keys);
+        }
+        polls[i] = polls[i].received(t, newRef, p);
+        return changed?p:null;
     }
     
     /**
-     * Returns the date of the last time the weather objects were refreshed
-     * @return a string representing the last time the weather objects were refreshed
+     * Returns the builder of the current weather of a refresh
+     * @param newRef the time the refresh started
+     * @return the builder
+     */
+    private static LazyData.Builder<Weather> localBuilder(final long newRef){
+        return new LazyData.Builder<Weather>(){
+            public Weather build(Payload p) throws Exception{
+                String[][] rows = p.extract(
+                                Weather.extractor(Weather.WeatherType.LOCAL));
+                if(rows.length == 0)
+                    throw new JSONException("Response has no current weather");
+                return new Weather(rows[0], Weather.WeatherType.LOCAL)
+                                                        .withLastPoll(newRef);
+            }
+        };
+    }
+    
+    /**
+     * Returns the builder of a forecast of a refresh
+     * @param t the type of the forecast
+     * @param newRef the time the refresh started
+     * @param local the time zone the forecast is displayed in
+     * @return the builder
+     */
+    private static LazyData.Builder<Forecast> forecastBuilder(
+            final Weather.WeatherType t, final long newRef, 
+            final ZoneId local){
+        return new LazyData.Builder<Forecast>(){
+            public Forecast build(Payload p) throws Exception{
+                Forecast f = new Forecast(p.extract(Weather.extractor(t)), t);
+                return f.withLastPoll(newRef).withZone(local);
+            }
+        };
+    }
+    
+    /**
+     * Returns the change made to the current weather when it is kept
+     * during a refresh
+     * @param newRef the time the refresh started
+     * @return the change, which sets the poll time
+     */
+    private static UnaryOperator<Weather> keepWeather(final long newRef){
+        return new UnaryOperator<Weather>(){
+            public Weather apply(Weather old){
+                return old.withLastPoll(newRef);
+            }
+        };
+    }
+    
+    /**
+     * Returns the change made to a forecast when it is kept during a refresh
+     * that requested it
+     * @param newRef the time the refresh started
+     * @param local the time zone the forecast is displayed in
+     * @return the change, which sets the poll time and the time zone
+     */
+    private static UnaryOperator<Forecast> keepForecast(final long newRef,
+                                            final ZoneId local){
+        return new UnaryOperator<Forecast>(){
+            public Forecast apply(Forecast old){
+                return old.withLastPoll(newRef).withZone(local);
+            }
+        };
+    }
+    
+    /**
+     * Returns the change made to a forecast that was not requested during a
+     * refresh. The time zone of the location may have changed.
+     * @param local the time zone the forecast is displayed in
+     * @return the change, which sets the time zone
+     */
+    private static UnaryOperator<Forecast> keepZone(final ZoneId local){
+        return new UnaryOperator<Forecast>(){
+            public Forecast apply(Forecast old){
+                return old.withZone(local);
+            }
+        };
+    }
+    
+    /**
+     * Returns true if the given data set is due to be requested
+     * @param i the index of the data set in polls
+     * @param now the current time
+     * @return true if the data set is due
+     */
+    private boolean due(int i, long now){
+        return polls[i].isDue(now);
+    }
+    
+    /**
+     * Makes a snapshot of the data held now. The caller must hold the lock
+     * of this object.
+     * @param error the error to report in the snapshot
+     * @return the snapshot
+     */
+    private WeatherSnapshot snapshot(String error){
+        long now = System.currentTimeMillis();
+        boolean stale = due(LOCAL, now) || due(SHORT, now) || due(LONG, now);
+        return new WeatherSnapshot(this, current, shortTerm, longTerm, 
+                                   lastRefresh, stale, error);
+    }
+    
+    /**
+     * Sets the executor used to run the weather requests of every location.
+     * The current, short term and long term requests are submitted to it
+     * together, so it should allow at least three tasks to run at once.
+     * @param e the executor that will run the weather requests
+     */
+    public static void setExecutor(Executor e){
+        executor = e;
+    }
+    
+    /**
+     * Starts an asynchronous request for the data at the given url
+     * @param url the url of the weather data
+     * @param headers the validators of the data held now, or null
+     * @return a future that completes with the response or with the error
+     * that stopped it from being read
+     */
+    private static CompletableFuture<Payload> fetch(final String url,
+                                        final Map<String, String> headers){
+        return CompletableFuture.supplyAsync(new Supplier<Payload>(){
+            public Payload get(){
+                try{
+                    return URLToJSON.fetch(url, headers);
+                }
+                catch(Exception ex){
+                    throw new CompletionException(ex);
+                }
+            }
+        }, executor);
+    }
+    
+    /**
+     * Makes the default executor for the weather requests. It has one daemon
+     * thread for each of the three requests made during a refresh.
+     * @return the default executor
+     */
+    private static ExecutorService defaultExecutor(){
+        return Executors.newFixedThreadPool(3, new ThreadFactory(){
+            public Thread newThread(Runnable r){
+                Thread t = new Thread(r, "weather-fetch");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+    
+    /**
+     * Returns the time zone of the location, taken from the current weather
+     * @return the time zone of the location, or the time zone of this
+     * computer if it is not known
+     */
+    public ZoneId getZone(){
+        ZoneId z = zone;
+        return (z == null)?current.get().getZone():z;
+    }
+    
+    /**
+     * Returns the date of the last time the weather objects were refreshed,
+     * in the time zone of the location
+     * @return a string representing the last time the weather objects were
+     * refreshed, for example "Tue Apr 07 20:00"
      */
     public String getRefresh(){
-        Date time = new Date(lastRefresh);
-        return time.toString();
+        return WeatherFormat.forZone(getZone()).stamp(lastRefresh);
     }
     
     /**
@@ -190,35 +548,63 @@ public class LocationWeather implements Serializable{
     }
     
     /**
-     * Saves the LocationWeather object to the cache
-     * @throws IOException thrown if there is a problem loading the object
-     * @throws FileNotFoundException thrown if the file does not exist
-     */
-    private void save() throws IOException, FileNotFoundException{
-        FileOutputStream fo = 
-	    new FileOutputStream("WeatherCache/" + this.loc + ".dat");
-        ObjectOutputStream out = new ObjectOutputStream(fo);
-        out.writeObject(this);
-        out.close();
+     * Queues the LocationWeather object to be saved to the cache. It is
+     * encoded and written in the background by the shared WeatherWriter.
+     * A data set whose response has not been read by the time it is written
+     * is not read for it. The last data built before the response is
+     * written instead, and marked as never requested, so that it is
+     * requested again when it is loaded.
+     * @see WeatherCodec
+     */
+    private void save(){
+        final long refresh = lastRefresh;
+        final PollState[] p = polls.clone();
+        final LazyData<Weather> c = current;
+        final LazyData<Forecast> s = shortTerm, l = longTerm;
+        
+        WeatherWriter.getDefault().save(loc.getID(), new Callable<byte[]>(){
+            public byte[] call(){
+                WeatherCodec.Out out = new WeatherCodec.Out();
+                boolean[] unread = {c.isUnread(), s.isUnread(), l.isUnread()};
+                out.putLong(refresh);
+                for(int i = 0; i < p.length; i++)
+                    (unread[i]?PollState.NONE:p[i]).encode(out);
+                c.peek().encode(out);
+                s.peek().encode(out);
+                l.peek().encode(out);
+                
+                byte[] record = out.toByteArray();
+                if(Compression.isEnabled()) record = Compression.compress(record, null);
+                return record;
+            }
+        });
     }            
     
     /**
-     * Loads the LocationWeather object from the cache
-     * @throws IOException thrown if there is a problem saving the object
-     * @throws FileNotFoundException thrown if the file does not exist
-     * @throws ClassNotFoundException thrown if the class LocationWeather is not
-     * found
+     * Loads the LocationWeather object from the cache. Nothing is loaded if
+     * the cache has no record for the location. A record that is still
+     * waiting to be written is loaded instead of the one in the store.
+     * @throws IOException thrown if there is a problem loading the object
+     * @see WeatherCodec
      */
-    private void load() throws IOException, FileNotFoundException, 
-			       ClassNotFoundException{
-        FileInputStream fi 
-	    = new FileInputStream("WeatherCache/" + this.loc + ".dat");
-        ObjectInputStream in = new ObjectInputStream(fi);
-        LocationWeather cached = (LocationWeather) in.readObject();
+    private void load() throws IOException{
+        byte[] record = WeatherWriter.getDefault().read(loc.getID());
+        if(record == null) return;
+        
+        WeatherCodec.In in = new WeatherCodec.In(
+                                    Compression.decompress(record, null));
+        long refresh = in.getLong();
+        PollState[] p = new PollState[polls.length];
+        for(int i = 0; i < p.length; i++) p[i] = PollState.decode(in);
+        Weather c = Weather.decode(in);
+        Forecast s = Forecast.decode(in);
+        Forecast l = Forecast.decode(in);
         
-        this.current = cached.current;
-        this.shortTerm = cached.shortTerm;
-        this.longTerm = cached.longTerm;
-        this.lastRefresh = cached.lastRefresh;
+        this.current = new LazyData<>(c);
+        this.shortTerm = new LazyData<>(s);
+        this.longTerm = new LazyData<>(l);
+        this.lastRefresh = refresh;
+        this.zone = c.getZone();
+        System.arraycopy(p, 0, polls, 0, p.length);
     } 
 }
@@ -0,0 +1,181 @@
+package team15.WeatherObjects;
+
+/**
+ * A cache of the LocationWeather objects made during the session, so that
+ * switching back to a location that was shown recently does not read the
+ * disk cache or the network again.
+ *
+ * The cache holds a fixed number of locations and drops the one that was
+ * used longest ago when it is full.  Locations are dropped when they are
+ * older than the time to live, which is the refresh interval of the weather
+ * data by default.  A location made again after it is dropped reads the
+ * newest record of the location, also when it has not been written to the
+ * disk yet.
+ *
+ * @author team15
+ */
+
+//Imports
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import team15.UserOjects.Location;
+
+public class LocationWeatherCache{
+    //Default number of locations kept
+    public final static int CAPACITY = 16;
+
+    private static LocationWeatherCache shared;
+
+    private final int capacity;
+    private final long ttl;
+
+    //Cached locations, in the order they were used
+    private final LinkedHashMap<String, Cached> entries;
+
+    //Counters
+    private long hits, misses, evictions;
+
+    /**
+     * A cached location and the time it was made
+     */
+    private static class Cached{
+        final LocationWeather weather;
+        final long made;
+
+        Cached(LocationWeather w, long time){
+            weather = w;
+            made = time;
+        }
+    }
+
+    /**
+     * Creates a cache that holds the given number of locations
+     * @param cap the most locations held at once
+     * @param timeToLive the time in milliseconds a location is kept for
+     */
+    public LocationWeatherCache(int cap, long timeToLive){
+        capacity = Math.max(cap, 1);
+        ttl = timeToLive;
+        entries = new LinkedHashMap<String, Cached>(16, 0.75f, true){
+            protected boolean removeEldestEntry(Map.Entry<String, Cached> e){
+                if(size() <= capacity) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns the cache shared by the whole program
+     * @return the shared cache
+     */
+    public static synchronized LocationWeatherCache getDefault(){
+        if(shared == null)
+            shared = new LocationWeatherCache(CAPACITY, LocationWeather.REFRESH);
+        return shared;
+    }
+
+    /**
+     * Returns the weather for the given location.  If the location is not
+     * cached, or has been cached for longer than the time to live, a new
+     * LocationWeather is made for it with the data in the disk cache.  It
+     * is not refreshed from the network, see LocationWeather.read().
+     * @param l the location
+     * @return the weather for the location
+     */
+    public LocationWeather get(Location l){
+        String id = l.getID();
+        long now = System.currentTimeMillis();
+
+        synchronized(this){
+            Cached c = entries.get(id);
+            if(c != null && now - c.made <= ttl){
+                hits++;
+                return c.weather;
+            }
+            if(c != null){
+                entries.remove(id);
+                evictions++;
+            }
+            misses++;
+        }
+
+        //Make the new object without holding the lock, it reads the disk
+        LocationWeather w = new LocationWeather(l, false);
+        synchronized(this){
+            entries.put(id, new Cached(w, now));
+        }
+        return w;
+    }
+
+    /**
+     * Removes the given location from the cache
+     * @param l the location
+     * @return true if the location was cached
+     */
+    public synchronized boolean remove(Location l){
+        return entries.remove(l.getID()) != null;
+    }
+
+    /**
+     * Removes every location that has been cached for longer than the time to
+     * live
+     * @return the number of locations removed
+     */
+    public synchronized int expire(){
+        long now = System.currentTimeMillis();
+        int n = 0;
+        Iterator<Cached> it = entries.values().iterator();
+        while(it.hasNext()){
+            if(now - it.next().made > ttl){
+                it.remove();
+                n++;
+            }
+        }
+        evictions += n;
+        return n;
+    }
+
+    /**
+     * Returns the number of locations in the cache
+     * @return the number of cached locations
+     */
+    public synchronized int size(){
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of times a location was found in the cache
+     * @return the number of hits
+     */
+    public synchronized long getHits(){
+        return hits;
+    }
+
+    /**
+     * Returns the number of times a location had to be made
+     * @return the number of misses
+     */
+    public synchronized long getMisses(){
+        return misses;
+    }
+
+    /**
+     * Returns the number of locations dropped because the cache was full or
+     * they were too old
+     * @return the number of evictions
+     */
+    public synchronized long getEvictions(){
+        return evictions;
+    }
+
+    /**
+     * Returns the counters of the cache
+     * @return a string with the size and the counters of the cache
+     */
+    public synchronized String toString(){
+        return "LocationWeatherCache[size=" + entries.size() + ", hits=" + hits
+                + ", misses=" + misses + ", evictions=" + evictions + "]";
+    }
+}
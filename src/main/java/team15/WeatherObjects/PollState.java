@@ -0,0 +1,145 @@
+package team15.WeatherObjects;
+
+/**
+ * When one set of weather data of a location is next due to be requested,
+ * and what is needed to tell if the next response has changed.  The ETag and
+ * Last-Modified date of the last response are sent back with the next
+ * request, so that the server can answer 304 Not Modified without a body.
+ *
+ * @author team15
+ */
+
+//Imports
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import team15.JSON.Payload;
+import team15.WeatherObjects.Weather.WeatherType;
+
+final class PollState implements Serializable{
+    private static final long serialVersionUID = 4188318405476853610L;
+
+    //State of data that has never been requested, which is due at once
+    final static PollState NONE = new PollState(0, 0, 0, null, null);
+
+    //Time the data is next due in milliseconds
+    final long nextPoll;
+
+    //Hash of the last response and the number of unchanged responses in a row
+    final long hash;
+    final int unchanged;
+
+    //Validators of the last response, null if the server did not send them
+    final String etag, lastModified;
+
+    /**
+     * Creates a new state
+     * @param next the time the data is next due
+     * @param h the hash of the last response
+     * @param u the number of unchanged responses in a row
+     * @param tag the ETag of the last response, or null
+     * @param modified the Last-Modified date of the last response, or null
+     */
+    PollState(long next, long h, int u, String tag, String modified){
+        nextPoll = next;
+        hash = h;
+        unchanged = u;
+        etag = tag;
+        lastModified = modified;
+    }
+
+    /**
+     * Returns true if the data should be requested again
+     * @param now the current time in milliseconds
+     * @return true if the data is due
+     */
+    boolean isDue(long now){
+        return now >= nextPoll;
+    }
+
+    /**
+     * Returns the headers that ask the server to answer 304 Not Modified if
+     * the data has not changed since the last response
+     * @return the request headers, or null if there are no validators
+     */
+    Map<String, String> validators(){
+        if(etag == null && lastModified == null) return null;
+        Map<String, String> headers = new HashMap<>();
+        if(etag != null) headers.put("If-None-Match", etag);
+        if(lastModified != null) headers.put("If-Modified-Since", lastModified);
+        return headers;
+    }
+
+    /**
+     * Returns true if the given response is the same as the last one, either
+     * because the server said it was not modified or because its body hashes
+     * the same
+     * @param p the response
+     * @return true if the response has not changed
+     */
+    boolean isSame(Payload p){
+        return this != NONE && (p.isNotModified() || p.hash() == hash);
+    }
+
+    /**
+     * Returns the state after a response has been received
+     * @param t the type of the data
+     * @param now the time the response was received
+     * @param p the response
+     * @return the new state
+     */
+    PollState received(WeatherType t, long now, Payload p){
+        int u = isSame(p)?Math.min(unchanged + 1, RefreshPolicy.MAX_BACKOFF):0;
+        long wait = RefreshPolicy.delay(t, u, p.getLifetime());
+
+        //A 304 has no body and may leave out validators that did not change
+        if(p.isNotModified()){
+            String tag = (p.getETag() != null)?p.getETag():etag;
+            String modified = (p.getLastModified() != null)?
+                                            p.getLastModified():lastModified;
+            return new PollState(now + wait, hash, u, tag, modified);
+        }
+        return new PollState(now + wait, p.hash(), u, p.getETag(), 
+                             p.getLastModified());
+    }
+
+    /**
+     * Returns the state after a request has failed. The data is requested
+     * again after the normal interval.
+     * @param t the type of the data
+     * @param now the time the request failed
+     * @return the new state
+     */
+    PollState failed(WeatherType t, long now){
+        return new PollState(now + RefreshPolicy.getInterval(t), hash, unchanged,
+                             etag, lastModified);
+    }
+
+    /**
+     * Writes this state to a cache record
+     * @param out the record being written
+     */
+    void encode(WeatherCodec.Out out){
+        out.putLong(nextPoll);
+        out.putLong(hash);
+        out.putLong(unchanged);
+        out.putString(etag);
+        out.putString(lastModified);
+    }
+
+    /**
+     * Reads a state written by encode() from a cache record
+     * @param in the record being read
+     * @return the state
+     * @throws IOException thrown if the record is cut off
+     */
+    static PollState decode(WeatherCodec.In in) throws IOException{
+        long next = in.getLong();
+        long h = in.getLong();
+        int u = (int) Math.min(in.getLong(), RefreshPolicy.MAX_BACKOFF);
+        String tag = in.getString();
+        String modified = in.getString();
+        return new PollState(next, h, u, tag, modified);
+    }
+}
@@ -0,0 +1,75 @@
+package team15.WeatherObjects;
+
+/**
+ * Decides how long each type of weather data is kept before it is requested
+ * again.
+ *
+ * Each type has its own interval, since the daily forecast changes far less
+ * often than the current weather.  If the server says a response stays
+ * fresh for longer than the interval, the data is kept until then.  Each
+ * time a request returns exactly the same data as the one before it, the
+ * interval is doubled, up to MAX_BACKOFF times.
+ *
+ * @author team15
+ */
+
+//Imports
+import team15.JSON.Payload;
+import team15.WeatherObjects.Weather.WeatherType;
+
+public final class RefreshPolicy{
+    //Default intervals in milliseconds
+    public final static long LOCAL_INTERVAL = 600000;
+    public final static long SHORT_INTERVAL = 1800000;
+    public final static long LONG_INTERVAL = 3600000;
+
+    //Shortest interval that can be set
+    public final static long MIN_INTERVAL = 60000;
+
+    //Most times the interval is doubled for unchanged data
+    public final static int MAX_BACKOFF = 3;
+
+    //Current intervals, indexed by type
+    private static volatile long[] intervals = {LOCAL_INTERVAL, SHORT_INTERVAL,
+                                                LONG_INTERVAL};
+
+    private RefreshPolicy(){}
+
+    /**
+     * Returns the interval for the given type of data
+     * @param t the type of the data
+     * @return the interval in milliseconds
+     */
+    public static long getInterval(WeatherType t){
+        return intervals[t.ordinal()];
+    }
+
+    /**
+     * Sets the interval for the given type of data. It applies from the next
+     * time the data is requested.
+     * @param t the type of the data
+     * @param ms the interval in milliseconds, at least MIN_INTERVAL
+     */
+    public static synchronized void setInterval(WeatherType t, long ms){
+        long[] next = intervals.clone();
+        next[t.ordinal()] = Math.max(ms, MIN_INTERVAL);
+        intervals = next;
+    }
+
+    /**
+     * Returns how long to wait before requesting data of the given type again
+     * @param t the type of the data
+     * @param unchanged the number of requests in a row that returned the same
+     * data as the one before
+     * @param lifetime the time the server said the data stays fresh for, or
+     * Payload.NO_LIFETIME
+     * @return the time to wait in milliseconds
+     */
+    static long delay(WeatherType t, int unchanged, long lifetime){
+        long base = getInterval(t);
+        long wait = base << Math.min(unchanged, MAX_BACKOFF);
+        if(lifetime != Payload.NO_LIFETIME)
+            wait = Math.max(wait, Math.min(lifetime, base << MAX_BACKOFF));
+        return wait;
+    }
+}
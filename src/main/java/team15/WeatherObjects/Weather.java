@@ -3,54 +3,107 @@ package team15.WeatherObjects;
 /**
  * The Weather class is constituted by variables present in the weather forecast
  *
+ * Weather objects can not be changed once they are built, so the placeholder
+ * objects returned by empty() are shared by every location.
+ *
  * @author team15
  */
 
 //Imports
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.Date;
+import java.net.HttpURLConnection;
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.HashMap;
+import java.util.Map;
 import javax.swing.ImageIcon;
 import org.json.JSONException;
 import org.json.JSONObject;
+import team15.JSON.JSONExtractor;
+import team15.JSON.KeyPath;
+import team15.JSON.Payload;
 
 public class Weather implements Serializable{
     //JSON key arrays
     private static final String[] localKeys = {"dt", "weather-description", 
                     "weather-icon", "main-temp", "main-temp_min", 
                     "main-temp_max", "main-humidity", "main-pressure", 
-                    "sys-sunrise", "sys-sunset", "wind-speed", "wind-deg"}; 
+                    "sys-sunrise", "sys-sunset", "wind-speed", "wind-deg", 
+                    "timezone"}; 
     private static final String[] shortKeys = {"dt", "weather-description", 
                     "weather-icon", "main-temp"};
     private static final String[] longKeys = {"dt", "weather-description", 
                     "weather-icon", "temp-day", "temp-min", "temp-max"};
 
+    //Fields that the value of each key is stored in, in the order of the keys
+    static enum Field{TIME, CONDITION, ICON, TEMP, MINTEMP, MAXTEMP, 
+                    HUMIDITY, PRESSURE, SUNRISE, SUNSET, WINDSPEED, WINDDEG, 
+                    ZONE;}
+    private static final Field[] localFields = {Field.TIME, Field.CONDITION,
+                    Field.ICON, Field.TEMP, Field.MINTEMP, Field.MAXTEMP, 
+                    Field.HUMIDITY, Field.PRESSURE, Field.SUNRISE, Field.SUNSET, 
+                    Field.WINDSPEED, Field.WINDDEG, Field.ZONE};
+    private static final Field[] shortFields = {Field.TIME, Field.CONDITION,
+                    Field.ICON, Field.TEMP};
+    private static final Field[] longFields = {Field.TIME, Field.CONDITION,
+                    Field.ICON, Field.TEMP, Field.MINTEMP, Field.MAXTEMP};
+    
+    //Key paths compiled once for each type
+    private static final KeyPath[] localPaths = KeyPath.compile(localKeys);
+    private static final KeyPath[] shortPaths = KeyPath.compile(shortKeys);
+    private static final KeyPath[] longPaths = KeyPath.compile(longKeys);
+
+    //Extractor that reads the keys of the local type straight from a response
+    private static final JSONExtractor localExtractor 
+                    = new JSONExtractor(localPaths);
+
     //List of Weather Icons
     private static HashMap<String, ImageIcon> iconList;
     
     //Enumeration of all the different types of weather objects
     public static enum WeatherType{LOCAL, SHORTTERM, LONGTERM;}
     
-    //Temperatures
-    private WeatherValue temp, minTemp, maxTemp;
+    //Value of a time that is not available
+    public static final long NO_TIME = Long.MIN_VALUE;
+    
+    //Temperatures in Celsius, NaN if not available
+    private double temp, minTemp, maxTemp;
     
-    //Wind
-    private WeatherValue windSpeed, windDirection;
+    //Wind speed in m/s and direction in degrees, NaN if not available
+    private double windSpeed, windDirection;
     
-    //Sky
-    private WeatherValue airPressure, humidity, skyCondition, iconPath;
-    public ImageIcon icon;
+    //Sky, pressure in hPa and humidity in percent, NaN if not available
+    private double airPressure, humidity;
+    private String skyCondition, iconPath;
     
-    //Time
-    private WeatherValue sunrise, sunset, time;
+    //Unix times in seconds, NO_TIME if not available
+    private long sunrise, sunset, time;
+    
+    //Time zone of the location, null if not available
+    private ZoneId zone;
     
     //Type of weather object this represents
-    public WeatherType type;
+    private WeatherType type;
     
     //Time this object was lastPoll at
-    public long lastPoll;
+    private long lastPoll;
+    
+    //Bit i is set if key i of the type was missing from the response
+    private int missing;
+    
+    //Display strings that do not depend on the temperature system
+    private transient String[] text;
+    private static final int MONTHDAY = 0, DAYTIME = 1, DATE = 2, 
+                    HUMIDITY = 3, PRESSURE = 4, SUNRISE = 5, SUNSET = 6, 
+                    WIND = 7;
+    
+    //Shared placeholders, indexed by type
+    private static final Weather[] empties = {new Weather(WeatherType.LOCAL), 
+        new Weather(WeatherType.SHORTTERM), new Weather(WeatherType.LONGTERM)};
     
     /**
      * Creates an instance of the Weather, class, setting all values to 0 or
@@ -68,6 +121,30 @@ public class Weather implements Serializable{
         loadDefaults(t);
     }
     
+    /**
+     * Creates a copy of the given weather object
+     * @param w the weather object to copy
+     */
+    private Weather(Weather w){
+        temp = w.temp;
+        minTemp = w.minTemp;
+        maxTemp = w.maxTemp;
+        windSpeed = w.windSpeed;
+        windDirection = w.windDirection;
+        airPressure = w.airPressure;
+        humidity = w.humidity;
+        skyCondition = w.skyCondition;
+        iconPath = w.iconPath;
+        sunrise = w.sunrise;
+        sunset = w.sunset;
+        time = w.time;
+        zone = w.zone;
+        type = w.type;
+        lastPoll = w.lastPoll;
+        missing = w.missing;
+        text = w.text;
+    }
+    
     /**
      * Creates new weather object from the given json object
      * @param json the json object containing the weather data
@@ -77,48 +154,164 @@ public class Weather implements Serializable{
     public Weather(JSONObject json, WeatherType t){
         loadDefaults(t);
         
-        WeatherValue[] values = this.valueArray();
-        String[] keys = this.keyArray();
+        KeyPath[] paths = pathArray(t);
+        Field[] fields = fieldArray(t);
         
-        /*Try to load the value of each key into ot's respective variable. If
-         *there is a problem loading the value leave the variable as a default*/
-        for(int i = 0; i < values.length; i++){
-            try{
-                String[] key = keys[i].split("-");
-
-                JSONObject tempJson = json;
-                int j = 0;
-                while(j < (key.length - 1)){
-                    if(key[j].equals("weather"))
-                        tempJson = tempJson.getJSONArray("weather")
-                                .getJSONObject(0);
-                    else tempJson = tempJson.getJSONObject(key[j]);
-                    j++;
-                }
-
-                values[i].setValue(tempJson.get(key[j]).toString());
-            }
-            catch(JSONException ex){}
+        /*Load the value of each key into its respective variable. If the key
+         *is missing leave the variable as a default and mark it missing*/
+        for(int i = 0; i < paths.length; i++){
+            Object value = paths[i].resolve(json);
+            if(value == null || !set(fields[i], value.toString())) 
+                missing |= 1 << i;
         }
         
-        icon = iconList.get(iconPath.toString());
-        
-        time.setValue(convertTime(time.value));
+        lastPoll = System.currentTimeMillis();
+    }
+    
+    /**
+     * Creates new weather object from values read by the extractor for the
+     * given type
+     * @param raw the values read from the response, in the same order as the
+     * keys of the type. Missing values are null.
+     * @param t The type of the Weather object.  Taken from values in the
+     * WeatherType enumeration
+     * @see #extractor(WeatherType)
+     */
+    Weather(String[] raw, WeatherType t){
+        loadDefaults(t);
         
-        //Capitalize sky condition string
-        convertSkyCondition();
+        Field[] fields = fieldArray(t);
+        for(int i = 0; i < fields.length; i++){
+            if(raw[i] == null || !set(fields[i], raw[i])) missing |= 1 << i;
+        }
         
-        //Change pressure to KPA
-        convertPressure();
+        lastPoll = System.currentTimeMillis();
+    }
+    
+    /**
+     * Returns the shared placeholder weather object for the given type. It
+     * holds default values and a last poll time of 0.
+     * @param t the type of the weather object
+     * @return the placeholder for the type
+     */
+    public static Weather empty(WeatherType t){
+        return empties[t.ordinal()];
+    }
+    
+    /**
+     * Returns a copy of this weather object with the given last poll time
+     * @param time the new last poll time
+     * @return a copy of this object polled at the given time
+     */
+    public Weather withLastPoll(long time){
+        Weather copy = new Weather(this);
+        copy.lastPoll = time;
+        return copy;
+    }
+    
+    /**
+     * Returns the time this weather object was last polled at
+     * @return the time in milliseconds
+     */
+    public long getLastPoll(){
+        return lastPoll;
+    }
+    
+    /**
+     * Returns the type of this weather object
+     * @return the type of this weather object
+     */
+    public WeatherType getType(){
+        return type;
+    }
+    
+    /**
+     * Returns the time zone of the location of this weather object. Times
+     * are displayed in this zone.
+     * @return the time zone of the location, or the time zone of this
+     * computer if the response did not include one
+     */
+    public ZoneId getZone(){
+        return (zone == null)?ZoneId.systemDefault():zone;
+    }
+    
+    /**
+     * Returns the icon for the sky condition of this weather object
+     * @return the sky condition icon
+     */
+    public ImageIcon getIcon(){
+        return getIcon(iconPath);
+    }
+    
+    /**
+     * Returns the extractor that reads the values for the given type from a
+     * response. The extractors for the forecast types read each element of
+     * the forecast list.
+     * @param t the type of the values that will be read
+     * @return the extractor for the type
+     * @see Forecast#extractor(WeatherType)
+     */
+    static JSONExtractor extractor(WeatherType t){
+        if(t == WeatherType.LOCAL) return localExtractor;
+        return Forecast.extractor(t);
+    }
+    
+    /**
+     * Checks that a response holds the weather of the given type, without
+     * parsing it. The response must be a whole JSON object with no error
+     * code and with the key the values of the type are read from, and a
+     * forecast must say it has enough entries if it says how many it has.
+     * @param t the type of the values that will be read
+     * @param p the response
+     * @return the keys of the top level of the response with their values
+     * @throws JSONException thrown if the response can not be read as the
+     * weather of the type
+     * @see Payload#scan()
+     */
+    static Map<String, String> check(WeatherType t, Payload p) 
+                                                        throws JSONException{
+        if(p.getStatus() != HttpURLConnection.HTTP_OK)
+            throw new JSONException("Response has status " + p.getStatus());
         
-        //Change the wind direct from degree to N, NW etc
-        windDirection.setValue(convertDegree(windDirection.value));
+        Map<String, String> keys = p.scan();
+        String code = keys.get("cod");
+        if(code != null && !code.equals("200"))
+            throw new JSONException("Response has error " + code + ": " 
+                                                    + keys.get("message"));
+        if(!keys.containsKey((t == WeatherType.LOCAL)?"main":"list"))
+            throw new JSONException("Response has no " + t + " weather");
         
-        //Change the sun rise/set time to just the time
-        sunrise.setValue(convertSuntime(sunrise.value));
-        sunset.setValue(convertSuntime(sunset.value));
-
-        lastPoll = System.currentTimeMillis();
+        String count = keys.get("cnt");
+        if(t != WeatherType.LOCAL && count != null){
+            int n;
+            try{
+                n = Integer.parseInt(count);
+            }
+            catch(NumberFormatException ex){
+                throw new JSONException("Response has a count of " + count);
+            }
+            if(n < Forecast.NUM)
+                throw new JSONException("Forecast has only " + n + " entries");
+        }
+        return keys;
+    }
+    
+    /**
+     * Returns the time zone given by the top level of a current weather
+     * response, without building the weather
+     * @param keys the keys of the top level of the response, as returned by
+     * check()
+     * @return the time zone of the location, or the time zone of this
+     * computer if the response did not include one, the same as getZone()
+     */
+    static ZoneId zoneOf(Map<String, String> keys){
+        String v = keys.get("timezone");
+        try{
+            if(v != null) return ZoneOffset.ofTotalSeconds(Integer.parseInt(v));
+        }
+        catch(NumberFormatException ex){}
+        catch(DateTimeException ex){}
+        return ZoneId.systemDefault();
     }
     
     /**
@@ -126,8 +319,7 @@ public class Weather implements Serializable{
      * @return a string containing the day of the month
      */
     public String getMonthDay(){
-        if(time.value.equals("N/A")) return "N/A";
-        return this.time.value.substring(4, 10);
+        return text(MONTHDAY);
     }
     
     /**
@@ -135,8 +327,7 @@ public class Weather implements Serializable{
      * @return a string containing the time of the day
      */
     public String getDayTime(){
-        if(time.value.equals("N/A")) return "N/A";
-        return time.value.substring(0,4)+time.value.substring(11,16);
+        return text(DAYTIME);
     }
     
     /**
@@ -144,7 +335,7 @@ public class Weather implements Serializable{
      * @return a string containing the sky condition
      */
     public String getCondition(){
-        return this.skyCondition.value;
+        return WeatherFormat.condition(skyCondition);
     }
     
     /**
@@ -152,8 +343,7 @@ public class Weather implements Serializable{
      * @return a string containing the humidity value
      */
     public String getHumidity(){
-        if(humidity.value.equals("N/A")) return "N/A";
-        return this.humidity.value + "%";
+        return text(HUMIDITY);
     }
     
     /**
@@ -161,8 +351,7 @@ public class Weather implements Serializable{
      * @return a string containing the full date
      */
     public String getDate(){
-        if(time.value.equals("N/A")) return "N/A";
-        return this.time.value.substring(0, 10);
+        return text(DATE);
     }
     
     /**
@@ -170,7 +359,7 @@ public class Weather implements Serializable{
      * @return a string containing the pressure value
      */
     public String getPressure(){
-        return this.airPressure.value;
+        return text(PRESSURE);
     }
     
     /**
@@ -178,7 +367,7 @@ public class Weather implements Serializable{
      * @return a string containing the sunset time
      */
     public String getSunset(){
-        return this.sunset.value;
+        return text(SUNSET);
     }
     
     /**
@@ -186,7 +375,7 @@ public class Weather implements Serializable{
      * @return a string containing the sunrise time
      */
     public String getSunrise(){
-        return this.sunrise.value;
+        return text(SUNRISE);
     }
     
     /**
@@ -194,7 +383,7 @@ public class Weather implements Serializable{
      * @return a string containing the wind speed in m/s and wind direction
      */
     public String getWind(){
-        return this.windSpeed + " m/s " + this.windDirection;
+        return text(WIND);
     }
     
     /**
@@ -205,8 +394,7 @@ public class Weather implements Serializable{
      * @return a string representing the temperature value of the weather
      */
     public String getTemp(boolean system){
-        String s = temp.value;
-        return (s.equals("N/A"))?s:convertTemp(s, system);
+        return WeatherFormat.temp(temp, system);
     }
     
     /**
@@ -218,8 +406,7 @@ public class Weather implements Serializable{
      * weather
      */
     public String getMinTemp(boolean system){
-        String s = minTemp.value;
-        return (s.equals("N/A"))?s:convertTemp(s, system);
+        return WeatherFormat.temp(minTemp, system);
     }
     
     /**
@@ -231,192 +418,200 @@ public class Weather implements Serializable{
      * weather
      */
     public String getMaxTemp(boolean system){
-        String s = maxTemp.value;
-        return (s.equals("N/A"))?s:convertTemp(s, system);
+        return WeatherFormat.temp(maxTemp, system);
     }
     
     /**
-     * Converts a given value in Kelvin to either Celsius or Fahrenheit
-     * @param t the temperature in Celsius
-     * @param system Represents the temperature system to use.
-     * False = Fahrenheit, True = Celsius
-     * @return a string representing the Kelvin temperature after it has been
-     * converted
+     * Returns one of the display strings of this object. The strings are all
+     * built the first time one of them is needed and kept after that, since
+     * the values they are built from can not change.
+     * @param i the index of the string, for example MONTHDAY
+     * @return the display string
      */
-    private static String convertTemp(String t, boolean system){
-        double temp = Double.valueOf(t);
-        
-        //Check if we need to temp tempriture in fahrenheit
-        if(!system) temp = 32+(temp*9)/5;
-        
-        int result = (int) Math.round(temp);
-        
-	//u00B0 unicode for the degree sign
-        return result + (String.valueOf('\u00B0') + (system?"C":"F"));
+    private String text(int i){
+        String[] t = text;
+        if(t == null){
+            WeatherFormat f = WeatherFormat.forZone(getZone());
+            t = new String[]{f.monthDay(time), f.dayTime(time), f.date(time), 
+                WeatherFormat.humidity(humidity), 
+                WeatherFormat.pressure(airPressure), f.clock(sunrise), 
+                f.clock(sunset), WeatherFormat.wind(windSpeed, windDirection)};
+            text = t;
+        }
+        return t[i];
     }
     
     /**
-     * Converts the unix time value returned from OpenWeather into a Date object
-     * @param t the time value from OpenWeather
-     * @return a string containing the full date or time that the given value t represents
+     * Loads a new weather object with all default values and a type t
+     * @param t the type of the Weather object. Taken from the WeatherType
+     * enumeration
      */
-    private static String convertTime(String t){
-        if(t.equals("N/A")) return "N/A";
-        Date date = new Date();
-        date.setTime((long)1000*Integer.valueOf(t));
-        return date.toString();
+    private void loadDefaults(WeatherType t){
+        temp = Double.NaN;
+        minTemp = Double.NaN;
+        maxTemp = Double.NaN;
+        
+        windSpeed = Double.NaN;
+        windDirection = Double.NaN;
+        
+        airPressure = Double.NaN;
+        humidity = Double.NaN;
+        skyCondition = null;
+        iconPath = "01d";
+        
+        sunrise = NO_TIME;
+        sunset = NO_TIME;
+        time = NO_TIME;
+        zone = null;
+        
+        type = t;
+        lastPoll = 0;
     }
     
     /**
-     * Converts the pressure string into its displayable form
+     * Returns the keys that were missing from the response this object was
+     * built from
+     * @return a bit mask where bit i is set if the i-th key of this object's
+     * type was missing. 0 if every value was found or the object holds
+     * default values.
      */
-    private void convertPressure(){
-        if(airPressure.value.equals("N/A")) return;
-        Double p = Double.valueOf(this.airPressure.value)/10;
-        this.airPressure.setValue(Math.round(p) + " kPa");
+    public int getMissingKeys(){
+        return missing;
     }
     
     /**
-     * Converts the sky condition string into its displayable format
+     * Stores a value read from a response in the given field, parsing it
+     * into the type of the field
+     * @param f the field to store the value in
+     * @param v the value read from the response
+     * @return false if the value could not be parsed
      */
-    private void convertSkyCondition() {
-        String[] s = skyCondition.value.split(" ");
-        String result = "";
-        int i = 0;
-        for(String word: s){
-            String first = word.substring(0, 1);
-            result += first.toUpperCase() + word.substring(1)+" ";
-            if((i%2)==1){
-                result += "\n";
+    private boolean set(Field f, String v){
+        try{
+            switch (f) {
+                case TIME: time = Long.parseLong(v); break;
+                case CONDITION: skyCondition = v; break;
+                case ICON: iconPath = v; break;
+                case TEMP: temp = Double.parseDouble(v); break;
+                case MINTEMP: minTemp = Double.parseDouble(v); break;
+                case MAXTEMP: maxTemp = Double.parseDouble(v); break;
+                case HUMIDITY: humidity = Double.parseDouble(v); break;
+                case PRESSURE: airPressure = Double.parseDouble(v); break;
+                case SUNRISE: sunrise = Long.parseLong(v); break;
+                case SUNSET: sunset = Long.parseLong(v); break;
+                case WINDSPEED: windSpeed = Double.parseDouble(v); break;
+                case WINDDEG: windDirection = Double.parseDouble(v); break;
+                case ZONE: 
+                    zone = ZoneOffset.ofTotalSeconds(Integer.parseInt(v)); 
+                    break;
             }
-            i++;
+            return true;
+        }
+        catch(NumberFormatException ex){
+            return false;
+        }
+        catch(DateTimeException ex){
+            return false;
         }
-        skyCondition.setValue(result);
     }
     
     /**
-     * Converts the sunrise/sunset time from unix time format to a displayable format
-     *@param t unix sunrise/sunset time
-     *@return date a displayable format
+     * Writes this weather object to a cache record
+     * @param out the record being written
+     * @see WeatherCodec
      */
-    private String convertSuntime(String t){
-        if(t.equals("N/A")) return "N/A";
-        Date date = new Date();
-        date.setTime((long)1000*Integer.valueOf(t));
-        return date.toString().substring(11, 16);
+    void encode(WeatherCodec.Out out){
+        out.putByte(type.ordinal());
+        out.putLong(lastPoll);
+        out.putLong(missing & 0xFFFFFFFFL);
+        out.putTime(time);
+        out.putTime(sunrise);
+        out.putTime(sunset);
+        out.putZone(zone);
+        out.putCondition(skyCondition);
+        out.putByte(Forecast.encodeIcon(iconPath));
+        out.putFixed(temp);
+        out.putFixed(minTemp);
+        out.putFixed(maxTemp);
+        out.putFixed(humidity);
+        out.putFixed(airPressure);
+        out.putFixed(windSpeed);
+        out.putFixed(windDirection);
     }
     
     /**
-     * Loads a new weather object with all default values and a type t
-     * @param t the type of the Weather object. Taken from the WeatherType
-     * enumeration
+     * Reads a weather object written by encode() from a cache record
+     * @param in the record being read
+     * @return the weather object
+     * @throws IOException thrown if the record is cut off or not valid
      */
-    private void loadDefaults(WeatherType t){
-        if(iconList == null) loadIcons();
-        
-        temp = new WeatherValue("N/A");
-        minTemp = new WeatherValue("N/A");
-        maxTemp = new WeatherValue("N/A");
-        
-        windSpeed = new WeatherValue("N/A");
-        windDirection = new WeatherValue("N/A");
-        
-        airPressure = new WeatherValue("N/A");
-        humidity = new WeatherValue("N/A");
-        skyCondition = new WeatherValue("N/A");
-        iconPath = new WeatherValue("01d");
-        icon = iconList.get(iconPath.toString());
-        
-        sunrise = new WeatherValue("N/A");
-        sunset = new WeatherValue("N/A");
-        time = new WeatherValue("N/A");
-        
-        type = t;
-        lastPoll = 0;
+    static Weather decode(WeatherCodec.In in) throws IOException{
+        Weather w = new Weather(in.getType());
+        w.lastPoll = in.getLong();
+        w.missing = (int) in.getLong();
+        w.time = in.getTime();
+        w.sunrise = in.getTime();
+        w.sunset = in.getTime();
+        w.zone = in.getZone();
+        w.skyCondition = in.getCondition();
+        w.iconPath = Forecast.decodeIcon(in.getByte());
+        w.temp = in.getFixed();
+        w.minTemp = in.getFixed();
+        w.maxTemp = in.getFixed();
+        w.humidity = in.getFixed();
+        w.airPressure = in.getFixed();
+        w.windSpeed = in.getFixed();
+        w.windDirection = in.getFixed();
+        return w;
     }
     
     /**
-     * Returns an array of pointers to the fields of the weather object that
-     * will be used to hold the data from the JSON object passed in the 
-     * constructor of the class.
+     * Returns the fields that hold the values of the keys of the given type.
      * 
-     * The order of these pointers should match the order of their respective 
-     * keys that are returned in valueArray()
-     * @return an array of pointers to weather values that are not default in
-     * the weather object
-     */
-    public final WeatherValue[] valueArray(){
-        WeatherValue[] localValues = {time, skyCondition, iconPath, temp, 
-        minTemp, maxTemp, humidity, airPressure, sunrise, sunset, windSpeed, 
-        windDirection}; 
-        WeatherValue[] shortValues = {time, skyCondition, iconPath, temp};
-        WeatherValue[] longValues = {time, skyCondition, iconPath, temp, 
-            minTemp, maxTemp};
-        
-        WeatherValue[] result = null;
-    
-        switch (this.type) {
-            case LOCAL:  
-                result = localValues;
-                break;
-            case SHORTTERM:  
-                result = shortValues;
-                break;
-            case LONGTERM:  
-                result = longValues;
-                break;
+     * The order of the fields matches the order of their respective key
+     * paths that are returned in pathArray()
+     * @param t the type of the weather object
+     * @return the fields for the keys of the type
+     */
+    static Field[] fieldArray(WeatherType t){
+        switch (t) {
+            case SHORTTERM: 
+                return shortFields;
+            case LONGTERM:
+                return longFields;
+            default: 
+                return localFields;
         }
-        return result;
     }
     
     /**
-     * Returns an array of key values that will be used to extract values from
+     * Returns the compiled key paths that will be used to extract values from
      * the JSON object passed in the constructor of the class.
      * 
-     * The order of these keys should match the order of their respective 
-     * destinations that are returned in valueArray()
-     * @return an array of key values for use in getting data from a JSON obect
-     */
-    private String[] keyArray(){
-        switch (this.type) {
-            case LOCAL: 
-                return localKeys;
+     * The order of these paths matches the order of their respective 
+     * destinations that are returned in fieldArray()
+     * @param t the type of the weather object
+     * @return the compiled key paths for the type
+     */
+    static KeyPath[] pathArray(WeatherType t){
+        switch (t) {
             case SHORTTERM: 
-                return shortKeys;
+                return shortPaths;
             case LONGTERM:
-                return longKeys;
+                return longPaths;
+            default: 
+                return localPaths;
         }
-        return null;
     }
    
     /**
-     * Converts the given wind direction degree into a cardinal direction or
-     * sub cardinal direction
-     * @param d a string representing the direction of the wind in degrees
-     * @return a label N, NNE, NE, etc representing the direction the wind is
-     * blowing
+     * Returns the icon for the given OpenWeather icon code
+     * @param code the icon code, for example "10n"
+     * @return the icon for the code, or null if there is none
      */
-    private static String convertDegree(String d){
-        if(d.equals("N/A")) return "N/A";
-        Double degree = Double.valueOf(d);
-        
-        if(degree < 11.25) return "N";
-        else if (degree < 33.75) return "NNE";
-        else if (degree < 56.25) return "NE";
-        else if (degree < 78.75) return "ENE";
-        else if (degree < 101.25) return "E";
-        else if (degree < 123.75) return "ESE";
-        else if (degree < 146.25) return "SE";
-        else if (degree < 168.75) return "SSE";
-        else if (degree < 191.25) return "S";
-        else if (degree < 213.75) return "SSW";
-        else if (degree < 236.25) return "SW";
-        else if (degree < 258.75) return "WSW";
-        else if (degree < 281.25) return "W";
-        else if (degree < 303.75) return "WNW";
-        else if (degree < 326.25) return "NW";
-        else if (degree < 348.75) return "NNW";
-        else return "N";
+    static ImageIcon getIcon(String code){
+        if(iconList == null) loadIcons();
+        return iconList.get(code);
     }
     
     /**
@@ -0,0 +1,374 @@
+package team15.WeatherObjects;
+
+/**
+ * The binary format of the weather records kept in the cache.
+ *
+ * A record starts with a marker byte and the version of the format. The
+ * values after that are written by the objects themselves through an Out
+ * and read back through an In:
+ * - whole numbers and times are variable length, 7 bits to a byte
+ * - times that may be missing, and deltas between times, are zig-zag coded
+ *   so that small negative numbers stay small
+ * - temperatures and other measurements are fixed point in hundredths
+ * - sky conditions are numbers in a shared dictionary of the OpenWeather
+ *   descriptions, with any other description written once per record
+ *
+ * The dictionary may only be added to at the end, and any other change to
+ * the format needs a new VERSION.
+ *
+ * @author team15
+ */
+
+//Imports
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+final class WeatherCodec{
+    //First bytes of every record
+    private final static int MARKER = 0xC7;
+    final static int VERSION = 3;
+
+    //Fixed point scale of the measurements
+    private final static double SCALE = 100;
+
+    //Sky conditions of OpenWeather, coded by their index plus one
+    private final static String[] conditions = {
+        "thunderstorm with light rain", "thunderstorm with rain",
+        "thunderstorm with heavy rain", "light thunderstorm", "thunderstorm",
+        "heavy thunderstorm", "ragged thunderstorm",
+        "thunderstorm with light drizzle", "thunderstorm with drizzle",
+        "thunderstorm with heavy drizzle", "light intensity drizzle",
+        "drizzle", "heavy intensity drizzle", "light intensity drizzle rain",
+        "drizzle rain", "heavy intensity drizzle rain",
+        "shower rain and drizzle", "heavy shower rain and drizzle",
+        "shower drizzle", "light rain", "moderate rain",
+        "heavy intensity rain", "very heavy rain", "extreme rain",
+        "freezing rain", "light intensity shower rain", "shower rain",
+        "heavy intensity shower rain", "ragged shower rain", "light snow",
+        "snow", "heavy snow", "sleet", "light shower sleet", "shower sleet",
+        "light rain and snow", "rain and snow", "light shower snow",
+        "shower snow", "heavy shower snow", "mist", "smoke", "haze",
+        "sand, dust whirls", "fog", "sand", "dust", "volcanic ash", "squalls",
+        "tornado", "clear sky", "few clouds", "scattered clouds",
+        "broken clouds", "overcast clouds", "sky is clear"};
+    private final static HashMap<String, Integer> codes = new HashMap<>();
+
+    static{
+        for(int i = 0; i < conditions.length; i++) codes.put(conditions[i], i + 1);
+    }
+
+    private WeatherCodec(){}
+
+    /**
+     * Writes the values of a record
+     */
+    static final class Out{
+        private byte[] buf = new byte[512];
+        private int len = 0;
+
+        //Sky conditions written in this record that are not in the dictionary
+        private final HashMap<String, Integer> extra = new HashMap<>();
+
+        /**
+         * Starts a new record
+         */
+        Out(){
+            putByte(MARKER);
+            putByte(VERSION);
+        }
+
+        /**
+         * Writes a single byte
+         * @param b the byte, only the low 8 bits are written
+         */
+        void putByte(int b){
+            if(len == buf.length) buf = Arrays.copyOf(buf, len * 2);
+            buf[len++] = (byte) b;
+        }
+
+        /**
+         * Writes a number that is not negative, 7 bits to a byte
+         * @param v the number, treated as unsigned
+         */
+        void putLong(long v){
+            while((v & ~0x7FL) != 0){
+                putByte((int) (v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            putByte((int) v);
+        }
+
+        /**
+         * Writes a number that may be negative
+         * @param v the number
+         */
+        void putSigned(long v){
+            putLong((v << 1) ^ (v >> 63));
+        }
+
+        /**
+         * Writes a time that may be missing
+         * @param t the time, or Weather.NO_TIME
+         */
+        void putTime(long t){
+            if(t == Weather.NO_TIME) putLong(0);
+            else putLong(((t << 1) ^ (t >> 63)) + 1);
+        }
+
+        /**
+         * Writes a measurement in fixed point
+         * @param v the measurement, or NaN if it is not available
+         */
+        void putFixed(double v){
+            if(Double.isNaN(v)) putLong(0);
+            else{
+                long f = Math.round(v * SCALE);
+                putLong(((f << 1) ^ (f >> 63)) + 1);
+            }
+        }
+
+        /**
+         * Writes a sky condition
+         * @param s the sky condition, or null if it is not available
+         */
+        void putCondition(String s){
+            if(s == null){
+                putLong(0);
+                return;
+            }
+
+            Integer code = codes.get(s);
+            if(code != null){
+                putLong(code);
+                return;
+            }
+
+            //Write the text the first time, then its place in this record
+            code = extra.get(s);
+            if(code != null){
+                putLong(conditions.length + 2 + code);
+                return;
+            }
+            extra.put(s, extra.size());
+            putLong(conditions.length + 1);
+            byte[] text = s.getBytes(StandardCharsets.UTF_8);
+            putLong(text.length);
+            for(byte b: text) putByte(b);
+        }
+
+        /**
+         * Writes a string that may be missing
+         * @param s the string, or null
+         */
+        void putString(String s){
+            if(s == null){
+                putLong(0);
+                return;
+            }
+            byte[] text = s.getBytes(StandardCharsets.UTF_8);
+            putLong(text.length + 1);
+            for(byte b: text) putByte(b);
+        }
+
+        /**
+         * Writes a time zone
+         * @param z the time zone, or null if it is not known
+         */
+        void putZone(ZoneId z){
+            if(z == null) putByte(0);
+            else if(z instanceof ZoneOffset){
+                putByte(1);
+                putSigned(((ZoneOffset) z).getTotalSeconds());
+            }
+            else{
+                putByte(2);
+                byte[] text = z.getId().getBytes(StandardCharsets.UTF_8);
+                putLong(text.length);
+                for(byte b: text) putByte(b);
+            }
+        }
+
+        /**
+         * Returns the bytes of the record
+         * @return the record
+         */
+        byte[] toByteArray(){
+            return Arrays.copyOf(buf, len);
+        }
+    }
+
+    /**
+     * Reads the values of a record
+     */
+    static final class In{
+        private final byte[] buf;
+        private int pos;
+
+        //Sky conditions read from this record that are not in the dictionary
+        private final ArrayList<String> extra = new ArrayList<>();
+
+        /**
+         * Starts reading a record
+         * @param record the bytes of the record
+         * @throws IOException thrown if the record is not in this version of
+         * the format
+         */
+        In(byte[] record) throws IOException{
+            buf = record;
+            pos = 0;
+            if(getByte() != MARKER) throw new IOException("Not a weather record");
+            int v = getByte();
+            if(v != VERSION)
+                throw new IOException("Unknown weather record version " + v);
+        }
+
+        /**
+         * Reads a single byte
+         * @return the byte, from 0 to 255
+         * @throws IOException thrown if the record has ended
+         */
+        int getByte() throws IOException{
+            if(pos == buf.length) throw new EOFException("Weather record is cut off");
+            return buf[pos++] & 0xFF;
+        }
+
+        /**
+         * Reads a number written by putLong()
+         * @return the number
+         * @throws IOException thrown if the record has ended
+         */
+        long getLong() throws IOException{
+            long v = 0;
+            for(int shift = 0; shift < 64; shift += 7){
+                int b = getByte();
+                v |= (long) (b & 0x7F) << shift;
+                if((b & 0x80) == 0) return v;
+            }
+            throw new IOException("Weather record has a bad number");
+        }
+
+        /**
+         * Reads a number written by putSigned()
+         * @return the number
+         * @throws IOException thrown if the record has ended
+         */
+        long getSigned() throws IOException{
+            long v = getLong();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        /**
+         * Reads a time written by putTime()
+         * @return the time, or Weather.NO_TIME
+         * @throws IOException thrown if the record has ended
+         */
+        long getTime() throws IOException{
+            long v = getLong();
+            if(v == 0) return Weather.NO_TIME;
+            v--;
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        /**
+         * Reads a measurement written by putFixed()
+         * @return the measurement, or NaN if it is not available
+         * @throws IOException thrown if the record has ended
+         */
+        double getFixed() throws IOException{
+            long v = getLong();
+            if(v == 0) return Double.NaN;
+            v--;
+            return ((v >>> 1) ^ -(v & 1)) / SCALE;
+        }
+
+        /**
+         * Reads a sky condition written by putCondition()
+         * @return the sky condition, or null if it is not available
+         * @throws IOException thrown if the record has ended or the condition
+         * is not valid
+         */
+        String getCondition() throws IOException{
+            long code = getLong();
+            if(code == 0) return null;
+            if(code <= conditions.length) return conditions[(int) code - 1];
+
+            if(code == conditions.length + 1){
+                int n = (int) getLong();
+                if(n < 0 || n > buf.length - pos)
+                    throw new EOFException("Weather record is cut off");
+                String s = new String(buf, pos, n, StandardCharsets.UTF_8)
+                        .intern();
+                pos += n;
+                extra.add(s);
+                return s;
+            }
+
+            long i = code - conditions.length - 2;
+            if(i >= extra.size())
+                throw new IOException("Weather record has a bad condition");
+            return extra.get((int) i);
+        }
+
+        /**
+         * Reads a string written by putString()
+         * @return the string, or null if it was missing
+         * @throws IOException thrown if the record has ended
+         */
+        String getString() throws IOException{
+            long n = getLong();
+            if(n == 0) return null;
+            if(n - 1 > buf.length - pos)
+                throw new EOFException("Weather record is cut off");
+            String s = new String(buf, pos, (int) n - 1, StandardCharsets.UTF_8);
+            pos += n - 1;
+            return s;
+        }
+
+        /**
+         * Reads a time zone written by putZone()
+         * @return the time zone, or null if it was not known
+         * @throws IOException thrown if the record has ended or the zone is
+         * not valid
+         */
+        ZoneId getZone() throws IOException{
+            int kind = getByte();
+            try{
+                if(kind == 0) return null;
+                if(kind == 1) return ZoneOffset.ofTotalSeconds((int) getSigned());
+                if(kind == 2){
+                    int n = (int) getLong();
+                    if(n < 0 || n > buf.length - pos)
+                        throw new EOFException("Weather record is cut off");
+                    String id = new String(buf, pos, n, StandardCharsets.UTF_8);
+                    pos += n;
+                    return ZoneId.of(id);
+                }
+            }
+            catch(DateTimeException ex){
+                throw new IOException("Weather record has a bad time zone");
+            }
+            throw new IOException("Weather record has a bad time zone");
+        }
+
+        /**
+         * Reads the type of a weather object
+         * @return the type
+         * @throws IOException thrown if the record has ended or the type is
+         * not valid
+         */
+        Weather.WeatherType getType() throws IOException{
+            int t = getByte();
+            Weather.WeatherType[] types = Weather.WeatherType.values();
+            if(t >= types.length)
+                throw new IOException("Weather record has a bad type");
+            return types[t];
+        }
+    }
+}
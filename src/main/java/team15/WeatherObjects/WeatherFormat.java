@@ -0,0 +1,276 @@
+package team15.WeatherObjects;
+
+/**
+ * Turns weather values into the strings that are displayed.  Strings that
+ * are used over and over (temperatures, compass points and sky conditions)
+ * come from lookup tables so that displaying them does not build new
+ * strings.  Times are formatted with DateTimeFormatters that are made once
+ * for each time zone.
+ *
+ * @author team15
+ */
+
+//Imports
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class WeatherFormat{
+    //Displayed for values that are not available
+    public final static String NA = "N/A";
+
+    //Compass points, each covering 22.5 degrees starting at north
+    private final static String[] compass = {"N", "NNE", "NE", "ENE", "E",
+                    "ESE", "SE", "SSE", "S", "SSW", "SW", "WSW", "W", "WNW",
+                    "NW", "NNW"};
+
+    //Temperature strings for whole degrees from -TEMPRANGE to TEMPRANGE
+    private final static int TEMPRANGE = 300;
+    private final static String[] celsius = new String[2*TEMPRANGE + 1];
+    private final static String[] fahrenheit = new String[2*TEMPRANGE + 1];
+
+    //Displayable sky conditions, keyed by the OpenWeather description
+    private final static ConcurrentHashMap<String, String> conditions
+                                                    = new ConcurrentHashMap<>();
+
+    //Formats for each time zone
+    private final static ConcurrentHashMap<ZoneId, WeatherFormat> zones
+                                                    = new ConcurrentHashMap<>();
+
+    private final ZoneId zone;
+    private final DateTimeFormatter monthDay, dayTime, date, clock, stamp;
+
+    /**
+     * Creates the formatters for the given time zone
+     * @param z the time zone
+     */
+    private WeatherFormat(ZoneId z){
+        zone = z;
+        monthDay = DateTimeFormatter.ofPattern("MMM dd", Locale.ENGLISH)
+                .withZone(z);
+        dayTime = DateTimeFormatter.ofPattern("EEE HH:mm", Locale.ENGLISH)
+                .withZone(z);
+        date = DateTimeFormatter.ofPattern("EEE MMM dd", Locale.ENGLISH)
+                .withZone(z);
+        clock = DateTimeFormatter.ofPattern("HH:mm", Locale.ENGLISH)
+                .withZone(z);
+        stamp = DateTimeFormatter.ofPattern("EEE MMM dd HH:mm", Locale.ENGLISH)
+                .withZone(z);
+    }
+
+    /**
+     * Returns the format for the given time zone
+     * @param z the time zone that times are displayed in
+     * @return the format for the time zone
+     */
+    public static WeatherFormat forZone(ZoneId z){
+        WeatherFormat f = zones.get(z);
+        if(f == null){
+            zones.putIfAbsent(z, new WeatherFormat(z));
+            f = zones.get(z);
+        }
+        return f;
+    }
+
+    /**
+     * Returns the format for the time zone of this computer
+     * @return the format for the default time zone
+     */
+    public static WeatherFormat getDefault(){
+        return forZone(ZoneId.systemDefault());
+    }
+
+    /**
+     * Returns the time zone of this format
+     * @return the time zone times are displayed in
+     */
+    public ZoneId getZone(){
+        return zone;
+    }
+
+    /**
+     * Formats a unix time as the month and day of the month, e.g. "Apr 07"
+     * @param t the time in seconds
+     * @return the month and day, or "N/A" if t is Weather.NO_TIME
+     */
+    public String monthDay(long t){
+        return format(monthDay, t);
+    }
+
+    /**
+     * Formats a unix time as the day of the week and time, e.g. "Tue 20:00"
+     * @param t the time in seconds
+     * @return the day and time, or "N/A" if t is Weather.NO_TIME
+     */
+    public String dayTime(long t){
+        return format(dayTime, t);
+    }
+
+    /**
+     * Formats a unix time as the full date, e.g. "Tue Apr 07"
+     * @param t the time in seconds
+     * @return the full date, or "N/A" if t is Weather.NO_TIME
+     */
+    public String date(long t){
+        return format(date, t);
+    }
+
+    /**
+     * Formats a unix time as the time of the day, e.g. "06:47"
+     * @param t the time in seconds
+     * @return the time of the day, or "N/A" if t is Weather.NO_TIME
+     */
+    public String clock(long t){
+        return format(clock, t);
+    }
+
+    /**
+     * Formats a time in milliseconds as the date and time of the day, e.g.
+     * "Tue Apr 07 20:00"
+     * @param ms the time in milliseconds
+     * @return the date and time
+     */
+    public String stamp(long ms){
+        return stamp.format(Instant.ofEpochMilli(ms));
+    }
+
+    /**
+     * Formats a temperature in the specified system
+     * @param t the temperature in Celsius
+     * @param system Represents the temperature system to use.
+     * False = Fahrenheit, True = Celsius
+     * @return the rounded temperature with its unit, or "N/A" if t is NaN
+     */
+    public static String temp(double t, boolean system){
+        if(Double.isNaN(t)) return NA;
+
+        //Check if we need to temp tempriture in fahrenheit
+        if(!system) t = 32+(t*9)/5;
+        long result = Math.round(t);
+
+        String[] table = system?celsius:fahrenheit;
+        if(result < -TEMPRANGE || result > TEMPRANGE)
+            return makeTemp(result, system);
+
+        int i = (int) result + TEMPRANGE;
+        String s = table[i];
+        if(s == null) table[i] = s = makeTemp(result, system);
+        return s;
+    }
+
+    /**
+     * Converts the given wind direction degree into a cardinal direction or
+     * sub cardinal direction
+     * @param degree the direction of the wind in degrees
+     * @return a label N, NNE, NE, etc representing the direction the wind is
+     * blowing, or "N/A" if the degree is NaN
+     */
+    public static String compass(double degree){
+        if(Double.isNaN(degree)) return NA;
+        if(degree < 11.25) return compass[0];
+        return compass[(int) ((degree + 11.25) / 22.5) % compass.length];
+    }
+
+    /**
+     * Converts the sky condition string into its displayable format
+     * @param condition the sky condition from OpenWeather, or null
+     * @return the sky condition with each word capitalized and two words on
+     * each line, or "N/A" if the condition is null
+     */
+    public static String condition(String condition){
+        if(condition == null) return NA;
+
+        String s = conditions.get(condition);
+        if(s == null){
+            s = makeCondition(condition);
+            conditions.putIfAbsent(condition, s);
+        }
+        return s;
+    }
+
+    /**
+     * Formats a humidity
+     * @param h the humidity in percent
+     * @return the rounded humidity with a percent sign, or "N/A" if h is NaN
+     */
+    public static String humidity(double h){
+        if(Double.isNaN(h)) return NA;
+        return Math.round(h) + "%";
+    }
+
+    /**
+     * Formats an air pressure in kPa
+     * @param p the pressure in hPa
+     * @return the rounded pressure in kPa, or "N/A" if p is NaN
+     */
+    public static String pressure(double p){
+        if(Double.isNaN(p)) return NA;
+        return Math.round(p/10) + " kPa";
+    }
+
+    /**
+     * Formats a wind speed and direction
+     * @param speed the speed in m/s
+     * @param degree the direction in degrees
+     * @return the speed in m/s followed by the compass direction
+     */
+    public static String wind(double speed, double degree){
+        return number(speed) + " m/s " + compass(degree);
+    }
+
+    /**
+     * Formats a number, without a fraction if it is a whole number
+     * @param n the number to format
+     * @return the displayable form of the number, or "N/A" if n is NaN
+     */
+    public static String number(double n){
+        if(Double.isNaN(n)) return NA;
+        if(n == Math.rint(n) && Math.abs(n) < Long.MAX_VALUE)
+            return String.valueOf((long) n);
+        return String.valueOf(n);
+    }
+
+    /**
+     * Formats a unix time with the given formatter
+     * @param f the formatter
+     * @param t the time in seconds
+     * @return the formatted time, or "N/A" if t is Weather.NO_TIME
+     */
+    private static String format(DateTimeFormatter f, long t){
+        if(t == Weather.NO_TIME) return NA;
+        return f.format(Instant.ofEpochSecond(t));
+    }
+
+    /**
+     * Builds the string for a rounded temperature
+     * @param t the rounded temperature
+     * @param system true for Celsius, false for Fahrenheit
+     * @return the temperature string
+     */
+    private static String makeTemp(long t, boolean system){
+	//u00B0 unicode for the degree sign
+        return t + (String.valueOf('\u00B0') + (system?"C":"F"));
+    }
+
+    /**
+     * Capitalizes each word of a sky condition and puts two words on each line
+     * @param condition the sky condition from OpenWeather
+     * @return the displayable sky condition
+     */
+    private static String makeCondition(String condition){
+        StringBuilder result = new StringBuilder();
+        int i = 0;
+        for(String word: condition.split(" ")){
+            if(word.isEmpty()) continue;
+            result.append(Character.toUpperCase(word.charAt(0)))
+                  .append(word, 1, word.length()).append(' ');
+            if((i%2)==1){
+                result.append('\n');
+            }
+            i++;
+        }
+        return result.toString();
+    }
+}
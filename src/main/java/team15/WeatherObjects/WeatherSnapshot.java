@@ -0,0 +1,106 @@
+package team15.WeatherObjects;
+
+/**
+ * The weather data of a location at one point in time: the current weather,
+ * the short and long term forecasts and the time they were refreshed.
+ *
+ * A snapshot can not change, so it can be handed from the thread that
+ * refreshes the data to the thread that displays it.  Data that has not been
+ * built from its response yet is built when its getter is first called.
+ *
+ * @author team15
+ */
+
+//Imports
+import java.time.ZoneId;
+
+public final class WeatherSnapshot{
+    private final LocationWeather source;
+    private final LazyData<Weather> current;
+    private final LazyData<Forecast> shortTerm, longTerm;
+    private final long lastRefresh;
+    private final boolean stale;
+    private final String error;
+
+    /**
+     * Creates a new snapshot
+     * @param src the location the data belongs to
+     * @param c the current weather
+     * @param s the short term forecast
+     * @param l the long term forecast
+     * @param refresh the time of the last refresh in milliseconds
+     * @param isStale true if some of the data is older than the refresh
+     * interval
+     * @param err the error from the refresh, or a blank string
+     */
+    WeatherSnapshot(LocationWeather src, LazyData<Weather> c, 
+                    LazyData<Forecast> s, LazyData<Forecast> l,
+                    long refresh, boolean isStale, String err){
+        source = src;
+        current = c;
+        shortTerm = s;
+        longTerm = l;
+        lastRefresh = refresh;
+        stale = isStale;
+        error = err;
+    }
+
+    /**
+     * Returns the location weather object this snapshot was taken from
+     * @return the source of the snapshot
+     */
+    public LocationWeather getSource(){
+        return source;
+    }
+
+    /**
+     * Returns the current weather
+     * @return the current weather
+     */
+    public Weather getLocal(){
+        return current.get();
+    }
+
+    /**
+     * Returns the short term forecast
+     * @return the short term forecast
+     */
+    public Forecast getShortTerm(){
+        return shortTerm.get();
+    }
+
+    /**
+     * Returns the long term forecast
+     * @return the long term forecast
+     */
+    public Forecast getLongTerm(){
+        return longTerm.get();
+    }
+
+    /**
+     * Returns the date of the last refresh, in the time zone of the location
+     * @return a string representing the last refresh, for example
+     * "Tue Apr 07 20:00"
+     */
+    public String getRefresh(){
+        ZoneId zone = current.get().getZone();
+        return WeatherFormat.forZone(zone).stamp(lastRefresh);
+    }
+
+    /**
+     * Returns true if some of the data is older than the refresh interval
+     * and a newer snapshot may follow
+     * @return true if the data is stale
+     */
+    public boolean isStale(){
+        return stale;
+    }
+
+    /**
+     * Returns the error from the refresh that made this snapshot
+     * @return an error message, or a blank string if there was no error
+     */
+    public String getError(){
+        return error;
+    }
+}
@@ -0,0 +1,451 @@
+package team15.WeatherObjects;
+
+/**
+ * A single memory mapped file that caches the weather records of every
+ * location, in place of one file for each location.
+ *
+ * The file starts with a fixed header, followed by an index that holds the
+ * OpenWeather id of the record in each slot and the time it was last used,
+ * followed by the slots.  Every slot has the same size and holds the length
+ * of its record followed by the record.  The index is read into a map when
+ * the file is opened, so finding a record only needs the offset of its slot.
+ * When a record does not fit in a slot, for example one with long forecast
+ * horizons, the slots are doubled in size until it fits, up to 64 KB.  The
+ * layout does not depend on whether records are compressed, since each
+ * record says whether it is, so compressed and plain records can share the
+ * file.
+ *
+ * When the slots are full the capacity is doubled and the slots are moved
+ * down to make room for the larger index.  Records can be evicted by the
+ * time they were last used, and the file can be trimmed to fit the records
+ * that are left, see CacheManager.  A file written with a different layout
+ * is cleared, since it only holds cached data.
+ *
+ * @author team15
+ */
+
+//Imports
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+class WeatherStore{
+    //Default location of the cache
+    final static String FILE = "WeatherCache/weather.cache";
+
+    //Layout of the file
+    private final static int MAGIC = 0x57435331;
+    private final static int VERSION = 3;
+    private final static int HEADER = 32;
+    private final static int INDEX = 12;
+    final static int SLOT = 1024;
+    private final static int MAX_SLOT = 65536;
+    private final static int INITIAL_CAPACITY = 64;
+
+    //Offsets of the header fields
+    private final static int MAGIC_AT = 0, VERSION_AT = 4, SLOT_AT = 8,
+                             CAPACITY_AT = 12, COUNT_AT = 16;
+
+    private static WeatherStore shared;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private MappedByteBuffer map;
+    private int slotSize;
+    private int capacity, count;
+
+    //Most records kept, the one used longest ago is evicted to make room
+    private int limit = Integer.MAX_VALUE;
+
+    //Slot of each id in the file
+    private final HashMap<Integer, Integer> slots = new HashMap<>();
+
+    /**
+     * Opens the store in the given file, creating it if it does not exist
+     * @param f the file that holds the store
+     * @param size the size of a slot in a new file. A file with smaller slots
+     * is cleared.
+     * @throws IOException thrown if the file can not be opened or mapped
+     */
+    WeatherStore(File f, int size) throws IOException{
+        slotSize = size;
+        file = new RandomAccessFile(f, "rw");
+        channel = file.getChannel();
+
+        if(!open()) reset(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Returns the store in the default cache file, opening it the first time
+     * @return the shared store
+     * @throws IOException thrown if the file can not be opened or mapped
+     */
+    static synchronized WeatherStore getDefault() throws IOException{
+        if(shared == null) shared = new WeatherStore(new File(FILE), SLOT);
+        return shared;
+    }
+
+    /**
+     * Returns the record of the location with the given id
+     * @param id the OpenWeather id of the location
+     * @return a copy of the record, or null if there is none
+     * @throws IOException thrown if the id is not a number
+     */
+    synchronized byte[] get(String id) throws IOException{
+        Integer slot = slots.get(key(id));
+        if(slot == null) return null;
+
+        int at = slotOffset(slot);
+        int length = map.getInt(at);
+        if(length < 0 || length > slotSize - 4) return null;
+
+        byte[] record = new byte[length];
+        map.position(at + 4);
+        map.get(record);
+        map.putLong(indexOffset(slot) + 4, System.currentTimeMillis());
+        return record;
+    }
+
+    /**
+     * Stores the record of the location with the given id, replacing its old
+     * record
+     * @param id the OpenWeather id of the location
+     * @param record the record to store
+     * @return false if the record is larger than the largest slot and was not
+     * stored
+     * @throws IOException thrown if the id is not a number or the store can
+     * not be grown
+     */
+    synchronized boolean put(String id, byte[] record) throws IOException{
+        int k = key(id);
+        if(record.length > MAX_SLOT - 4) return false;
+        if(record.length > slotSize - 4) widen(record.length + 4);
+
+        Integer slot = slots.get(k);
+        if(slot == null){
+            if(count >= limit) evict(Long.MIN_VALUE, limit - 1);
+            if(count == capacity) grow();
+            slot = count;
+        }
+
+        //Write the record before it is added to the index
+        int at = slotOffset(slot);
+        map.position(at + 4);
+        map.put(record);
+        map.putInt(at, record.length);
+        map.putLong(indexOffset(slot) + 4, System.currentTimeMillis());
+
+        if(slot == count){
+            map.putInt(indexOffset(slot), k);
+            slots.put(k, slot);
+            map.putInt(COUNT_AT, ++count);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the record of the location with the given id. The last record
+     * is moved into its slot.
+     * @param id the OpenWeather id of the location
+     * @return true if there was a record to remove
+     * @throws IOException thrown if the id is not a number
+     */
+    synchronized boolean remove(String id) throws IOException{
+        return remove(key(id));
+    }
+
+    /**
+     * Removes the records that were last used before the given time, and
+     * then the records that were used longest ago until no more than the
+     * given number are left
+     * @param before the time in milliseconds records must have been used
+     * since to be kept
+     * @param max the most records to keep
+     * @return the ids of the records that were removed
+     */
+    synchronized List<String> evict(long before, int max){
+        final int[] keys = new int[count];
+        final long[] used = new long[count];
+        Integer[] order = new Integer[count];
+        for(int i = 0; i < count; i++){
+            keys[i] = map.getInt(indexOffset(i));
+            used[i] = map.getLong(indexOffset(i) + 4);
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>(){
+            public int compare(Integer a, Integer b){
+                return Long.compare(used[a], used[b]);
+            }
+        });
+
+        List<String> removed = new ArrayList<>();
+        for(int i: order){
+            if(used[i] >= before && count <= max) break;
+            remove(keys[i]);
+            removed.add(Integer.toString(keys[i]));
+        }
+        return removed;
+    }
+
+    /**
+     * Shrinks the file to the smallest capacity that holds the records in
+     * it. The slots are moved up, starting with the first, to follow the
+     * smaller index.
+     * @return true if the file was shrunk
+     * @throws IOException thrown if the file can not be mapped
+     */
+    synchronized boolean trim() throws IOException{
+        int cap = INITIAL_CAPACITY;
+        while(cap < count) cap *= 2;
+        if(cap >= capacity) return false;
+
+        int shift = INDEX*(capacity - cap);
+        for(int i = 0; i < count; i++){
+            copySlot(slotOffset(i), slotOffset(i) - shift);
+        }
+        capacity = cap;
+        map.putInt(CAPACITY_AT, capacity);
+        map.force();
+
+        //The end of the file is no longer used, some systems can not cut
+        //off a file that is mapped so it is left as it is there
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(cap));
+        try{
+            channel.truncate(fileSize(cap));
+        }
+        catch(IOException ex){}
+        return true;
+    }
+
+    /**
+     * Returns the number of records in the store
+     * @return the number of records
+     */
+    synchronized int size(){
+        return count;
+    }
+
+    /**
+     * Returns the size of the file of the store
+     * @return the size of the file in bytes
+     * @throws IOException thrown if the size can not be read
+     */
+    synchronized long footprint() throws IOException{
+        return channel.size();
+    }
+
+    /**
+     * Sets the most records the store keeps. Once it is full the record used
+     * longest ago is evicted to make room for a new one.
+     * @param max the most records to keep, at least 1
+     */
+    synchronized void setLimit(int max){
+        limit = Math.max(1, max);
+    }
+
+    /**
+     * Returns the most records a store whose file is no larger than the given
+     * size can hold. Capacities are doubled as the store grows, so this is
+     * the largest capacity that fits.
+     * @param bytes the size of the file
+     * @return the number of records
+     */
+    synchronized int recordsIn(long bytes){
+        if(fileSize(INITIAL_CAPACITY) > bytes) return 0;
+        int cap = INITIAL_CAPACITY;
+        while(cap < (1 << 20) && fileSize(cap * 2) <= bytes) cap *= 2;
+        return cap;
+    }
+
+    /**
+     * Writes the changes to the store out to the disk
+     */
+    synchronized void force(){
+        map.force();
+    }
+
+    /**
+     * Closes the file of the store. The store can not be used after this.
+     * @throws IOException thrown if there is a problem closing the file
+     */
+    synchronized void close() throws IOException{
+        map.force();
+        file.close();
+    }
+
+    /**
+     * Maps an existing file and reads its index
+     * @return false if the file is empty or has a different layout
+     * @throws IOException thrown if the file can not be mapped
+     */
+    private boolean open() throws IOException{
+        if(channel.size() < HEADER) return false;
+
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER);
+        int slot = map.getInt(SLOT_AT);
+        if(map.getInt(MAGIC_AT) != MAGIC || map.getInt(VERSION_AT) != VERSION
+                || slot < slotSize || slot > MAX_SLOT) return false;
+        slotSize = slot;
+
+        capacity = map.getInt(CAPACITY_AT);
+        count = map.getInt(COUNT_AT);
+        if(capacity <= 0 || count < 0 || count > capacity
+                || channel.size() < fileSize(capacity)) return false;
+
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(capacity));
+        for(int i = 0; i < count; i++) slots.put(map.getInt(indexOffset(i)), i);
+        return slots.size() == count;
+    }
+
+    /**
+     * Clears the file and writes an empty store with the given capacity
+     * @param cap the number of slots
+     * @throws IOException thrown if the file can not be mapped
+     */
+    private void reset(int cap) throws IOException{
+        slots.clear();
+        capacity = cap;
+        count = 0;
+
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(cap));
+        map.putInt(MAGIC_AT, MAGIC);
+        map.putInt(VERSION_AT, VERSION);
+        map.putInt(SLOT_AT, slotSize);
+        map.putInt(CAPACITY_AT, capacity);
+        map.putInt(COUNT_AT, count);
+    }
+
+    /**
+     * Doubles the number of slots. The slots are moved down, starting with
+     * the last, to make room for the larger index.
+     * @throws IOException thrown if the file can not be mapped or would be
+     * too large to map
+     */
+    private void grow() throws IOException{
+        int cap = capacity * 2;
+        if(fileSize(cap) > Integer.MAX_VALUE)
+            throw new IOException("Weather cache is full");
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(cap));
+
+        int shift = INDEX*(cap - capacity);
+        for(int i = count - 1; i >= 0; i--){
+            copySlot(slotOffset(i), slotOffset(i) + shift);
+        }
+
+        capacity = cap;
+        map.putInt(CAPACITY_AT, capacity);
+    }
+
+    /**
+     * Doubles the size of the slots until a record of the given size fits.
+     * The slots are moved down, starting with the last, to their larger
+     * offsets.
+     * @param needed the size of the slot needed, no more than MAX_SLOT
+     * @throws IOException thrown if the file can not be mapped or would be
+     * too large to map
+     */
+    private void widen(int needed) throws IOException{
+        int size = slotSize;
+        while(size < needed) size *= 2;
+        size = Math.min(size, MAX_SLOT);
+
+        long bytes = HEADER + (long) INDEX*capacity + (long) capacity*size;
+        if(bytes > Integer.MAX_VALUE)
+            throw new IOException("Weather cache is full");
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+
+        for(int i = count - 1; i >= 0; i--){
+            copySlot(slotOffset(i), HEADER + INDEX*capacity + i*size);
+        }
+
+        slotSize = size;
+        map.putInt(SLOT_AT, slotSize);
+    }
+
+    /**
+     * Removes the record with the given key. The last record is moved into
+     * its slot.
+     * @param k the key of the record
+     * @return true if there was a record to remove
+     */
+    private boolean remove(int k){
+        Integer slot = slots.remove(k);
+        if(slot == null) return false;
+
+        int last = count - 1;
+        if(slot != last){
+            int lastId = map.getInt(indexOffset(last));
+            long lastUsed = map.getLong(indexOffset(last) + 4);
+            copySlot(slotOffset(last), slotOffset(slot));
+            map.putInt(indexOffset(slot), lastId);
+            map.putLong(indexOffset(slot) + 4, lastUsed);
+            slots.put(lastId, slot);
+        }
+        map.putInt(COUNT_AT, --count);
+        return true;
+    }
+
+    /**
+     * Copies the record in one slot to another offset
+     * @param src the offset of the slot to copy
+     * @param dst the offset to copy it to
+     */
+    private void copySlot(int src, int dst){
+        int length = map.getInt(src);
+        byte[] record = new byte[4 + Math.max(0, Math.min(length, slotSize - 4))];
+        map.position(src);
+        map.get(record);
+        map.position(dst);
+        map.put(record);
+    }
+
+    /**
+     * Returns the offset of the given slot
+     * @param i the index of the slot
+     * @return the offset of the slot in the file
+     */
+    private int slotOffset(int i){
+        return HEADER + INDEX*capacity + i*slotSize;
+    }
+
+    /**
+     * Returns the offset of the index entry of the given slot
+     * @param slot the index of the slot
+     * @return the offset of the id of the slot, which is followed by the
+     * time it was last used
+     */
+    private static int indexOffset(int slot){
+        return HEADER + INDEX*slot;
+    }
+
+    /**
+     * Returns the size of a file with the given number of slots
+     * @param cap the number of slots
+     * @return the size of the file in bytes
+     */
+    private long fileSize(int cap){
+        return HEADER + (long) INDEX*cap + (long) cap*slotSize;
+    }
+
+    /**
+     * Converts an OpenWeather id into the key stored in the index
+     * @param id the OpenWeather id of a location
+     * @return the id as a number
+     * @throws IOException thrown if the id is not a number
+     */
+    private static int key(String id) throws IOException{
+        try{
+            return Integer.parseInt(id);
+        }
+        catch(NumberFormatException ex){
+            throw new IOException("Location id is not a number: " + id);
+        }
+    }
+}
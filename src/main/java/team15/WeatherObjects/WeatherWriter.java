@@ -0,0 +1,227 @@
+package team15.WeatherObjects;
+
+/**
+ * Encodes and writes cache records to the weather store on a background
+ * thread, so that a refresh does not wait on the disk or on building the
+ * data that is saved.
+ *
+ * Records saved for a location that has not been written yet replace the
+ * one that is waiting, so only the newest record of each location is
+ * written.  Locations only save a record when one of their responses has
+ * changed, see LocationWeather.  Records still waiting when the program
+ * exits are written by a shutdown hook.  Records are read through the
+ * writer, so that a record still waiting to be written is read instead of
+ * the older one in the store.  A record that can not be encoded or stored
+ * is logged, and the location keeps its older record.
+ *
+ * @author team15
+ */
+
+//Imports
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+class WeatherWriter{
+    private final static Logger log
+                            = Logger.getLogger(WeatherWriter.class.getName());
+
+    private static WeatherWriter shared;
+
+    //Records waiting to be encoded and written, by location id
+    private final LinkedHashMap<String, Callable<byte[]>> pending 
+                                                    = new LinkedHashMap<>();
+
+    //True while a record is being written, and the location it is for
+    private boolean busy = false;
+    private String writing;
+    private Thread thread;
+
+    /**
+     * Returns the writer shared by every location. It is flushed when the
+     * program exits.
+     * @return the shared writer
+     */
+    static synchronized WeatherWriter getDefault(){
+        if(shared == null){
+            shared = new WeatherWriter();
+            Runtime.getRuntime().addShutdownHook(new Thread("weather-flush"){
+                public void run(){
+                    try{
+                        shared.flush();
+                    }
+                    catch(IOException ex){}
+                }
+            });
+        }
+        return shared;
+    }
+
+    /**
+     * Queues the record of a location to be encoded and written
+     * @param id the OpenWeather id of the location
+     * @param record encodes the cache record when it is written
+     */
+    synchronized void save(String id, Callable<byte[]> record){
+        pending.put(id, record);
+        if(thread == null){
+            thread = new Thread("weather-writer"){
+                public void run(){
+                    writeAll();
+                }
+            };
+            thread.setDaemon(true);
+            thread.start();
+        }
+        notifyAll();
+    }
+
+    /**
+     * Returns the newest record of a location. This is the record waiting to
+     * be written if there is one, or else the record in the store.
+     * @param id the OpenWeather id of the location
+     * @return the record, or null if there is none
+     * @throws IOException thrown if the store can not be read
+     */
+    byte[] read(String id) throws IOException{
+        Callable<byte[]> encoder;
+        synchronized(this){
+            //Wait for a record of the location that is being written
+            while(id.equals(writing)){
+                try{
+                    wait();
+                }
+                catch(InterruptedException ex){
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            encoder = pending.get(id);
+        }
+
+        if(encoder != null){
+            try{
+                return encoder.call();
+            }
+            catch(Exception ex){
+                throw new IOException("Can not encode the record of " + id, ex);
+            }
+        }
+
+        return WeatherStore.getDefault().get(id);
+    }
+
+    /**
+     * Waits until every queued record has been written and then writes the
+     * store out to the disk
+     * @throws IOException thrown if the store can not be opened
+     */
+    void flush() throws IOException{
+        boolean writeHere = false;
+        synchronized(this){
+            while(!pending.isEmpty() || busy){
+                //Write the records here if the writer thread is not running
+                if(thread == null || !thread.isAlive()){
+                    busy = true;
+                    writeHere = true;
+                    break;
+                }
+                try{
+                    wait();
+                }
+                catch(InterruptedException ex){
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        if(writeHere) writeWaiting();
+        WeatherStore.getDefault().force();
+    }
+
+    /**
+     * Writes queued records for as long as the program runs
+     */
+    private void writeAll(){
+        while(true){
+            synchronized(this){
+                while(pending.isEmpty()){
+                    try{
+                        wait();
+                    }
+                    catch(InterruptedException ex){
+                        return;
+                    }
+                }
+                busy = true;
+            }
+            writeWaiting();
+        }
+    }
+
+    /**
+     * Writes the records that are queued, one at a time, until there are
+     * none left. busy must be set by the caller and is cleared when done.
+     */
+    private void writeWaiting(){
+        while(true){
+            String id;
+            Callable<byte[]> encoder;
+            synchronized(this){
+                Iterator<Map.Entry<String, Callable<byte[]>>> it
+                        = pending.entrySet().iterator();
+                if(!it.hasNext()){
+                    busy = false;
+                    notifyAll();
+                    return;
+                }
+                Map.Entry<String, Callable<byte[]>> e = it.next();
+                it.remove();
+                id = e.getKey();
+                encoder = e.getValue();
+                writing = id;
+            }
+
+            try{
+                write(id, encoder);
+            }
+            finally{
+                synchronized(this){
+                    writing = null;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Encodes a record and writes it to the store
+     * @param id the OpenWeather id of the location
+     * @param encoder encodes the record
+     */
+    private void write(String id, Callable<byte[]> encoder){
+        byte[] record;
+        try{
+            record = encoder.call();
+        }
+        catch(Exception ex){
+            log.log(Level.WARNING, "Can not encode the weather record of "
+                    + id, ex);
+            return;
+        }
+
+        try{
+            if(!WeatherStore.getDefault().put(id, record))
+                log.warning("Weather record of " + id + " is too large to "
+                            + "store: " + record.length + " bytes");
+        }
+        catch(IOException ex){
+            log.log(Level.WARNING, "Can not store the weather record of "
+                    + id, ex);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package team15.WeatherObjects;
+
+/**
+ * Synthetic OpenWeather responses and measuring helpers shared by the
+ * benchmarks.  The responses have the same keys and nesting as the real
+ * ones, so the parsers do the same work on them.
+ *
+ * @author team15
+ */
+
+//Imports
+import java.lang.management.ManagementFactory;
+
+final class BenchmarkData{
+    private BenchmarkData(){}
+
+    /**
+     * Returns a current weather response
+     * @return the body of the response
+     */
+    static String current(){
+        return "{\"coord\":{\"lon\":-81.23,\"lat\":42.98},\"weather\":[{\"id\":500,"
+            + "\"main\":\"Rain\",\"description\":\"light rain\",\"icon\":\"10n\"}],"
+            + "\"base\":\"stations\",\"main\":{\"temp\":7.37,\"pressure\":1012,"
+            + "\"humidity\":87,\"temp_min\":6,\"temp_max\":9.5},\"visibility\":10000,"
+            + "\"wind\":{\"speed\":4.1,\"deg\":217.5},\"clouds\":{\"all\":90},"
+            + "\"dt\":1428451200,\"sys\":{\"type\":1,\"id\":819,\"country\":\"CA\","
+            + "\"sunrise\":1428403640,\"sunset\":1428451094},\"timezone\":-14400,"
+            + "\"id\":6058560,\"name\":\"London\",\"cod\":200}";
+    }
+
+    /**
+     * Returns a short term forecast response
+     * @param n the number of entries, 40 for the five days OpenWeather sends
+     * @return the body of the response
+     */
+    static String forecast(int n){
+        StringBuilder b = new StringBuilder("{\"cod\":\"200\",\"message\":0.0123,"
+            + "\"city\":{\"id\":6058560,\"name\":\"London\",\"coord\":{\"lon\":"
+            + "-81.23,\"lat\":42.98},\"country\":\"CA\",\"population\":0},\"cnt\":"
+            + n + ",\"list\":[");
+        for(int i = 0; i < n; i++){
+            if(i > 0) b.append(',');
+            b.append("{\"dt\":").append(1428451200 + i*10800)
+             .append(",\"main\":{\"temp\":").append(270.15 + i*0.37)
+             .append(",\"temp_min\":269.5,\"temp_max\":275.1,\"pressure\":1003.21,"
+                     + "\"sea_level\":1025.08,\"grnd_level\":1003.21,\"humidity\":87,"
+                     + "\"temp_kf\":0},\"weather\":[{\"id\":500,\"main\":\"Rain\","
+                     + "\"description\":\"light rain\",\"icon\":\"10n\"}],\"clouds\":"
+                     + "{\"all\":92},\"wind\":{\"speed\":4.41,\"deg\":217.5},\"rain\":"
+                     + "{\"3h\":0.5},\"sys\":{\"pod\":\"n\"},\"dt_txt\":"
+                     + "\"2015-04-08 00:00:00\"}");
+        }
+        return b.append("]}").toString();
+    }
+
+    /**
+     * Returns a long term forecast response
+     * @param n the number of days
+     * @return the body of the response
+     */
+    static String daily(int n){
+        StringBuilder b = new StringBuilder("{\"city\":{\"id\":6058560,\"name\":"
+            + "\"London\",\"coord\":{\"lon\":-81.23,\"lat\":42.98},\"country\":"
+            + "\"CA\",\"population\":0},\"cod\":\"200\",\"message\":0.0098,"
+            + "\"cnt\":" + n + ",\"list\":[");
+        for(int i = 0; i < n; i++){
+            if(i > 0) b.append(',');
+            b.append("{\"dt\":").append(1428451200 + i*86400)
+             .append(",\"temp\":{\"day\":").append(12.5 + i)
+             .append(",\"min\":4.2,\"max\":").append(14.1 + i)
+             .append(",\"night\":4.2,\"eve\":10.3,\"morn\":6.1},\"pressure\":1003.21,"
+                     + "\"humidity\":87,\"weather\":[{\"id\":")
+             .append((i % 2 == 0)?"800,\"main\":\"Clear\",\"description\":"
+                     + "\"sky is clear\",\"icon\":\"01d\"}]"
+                     :"500,\"main\":\"Rain\",\"description\":\"light rain\","
+                     + "\"icon\":\"10d\"}]")
+             .append(",\"speed\":4.41,\"deg\":217,\"clouds\":92}");
+        }
+        return b.append("]}").toString();
+    }
+
+    /**
+     * Returns the number of bytes allocated by the current thread so far
+     * @return the allocated bytes, or 0 if the JVM can not count them
+     */
+    static long allocated(){
+        try{
+            return ((com.sun.management.ThreadMXBean)
+                    ManagementFactory.getThreadMXBean())
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        catch(ClassCastException ex){
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the text of every entry of a forecast, used to check that two
+     * ways of building it give the same forecast
+     * @param f the forecast
+     * @return the text of the entries
+     */
+    static String text(Forecast f){
+        StringBuilder b = new StringBuilder();
+        for(int i = 0; i < f.size(); i++){
+            b.append(f.get(i).getDate()).append(f.get(i).getDayTime())
+             .append(f.get(i).getTemp(true)).append(f.get(i).getMinTemp(true))
+             .append(f.get(i).getMaxTemp(true)).append(f.get(i).getCondition())
+             .append('\n');
+        }
+        return b.toString();
+    }
+
+    /**
+     * Returns the text of a current weather object
+     * @param w the weather
+     * @return the text of the weather
+     */
+    static String text(Weather w){
+        return w.getDate() + w.getDayTime() + w.getCondition() + w.getTemp(true)
+            + w.getMinTemp(true) + w.getMaxTemp(true) + w.getHumidity()
+            + w.getPressure() + w.getSunrise() + w.getSunset() + w.getWind();
+    }
+}
@@ -0,0 +1,162 @@
+package team15.WeatherObjects;
+
+/**
+ * Compares writing and reading the cached weather of a location with the
+ * binary WeatherCodec against Java serialization, which the cache used
+ * before.
+ *
+ * The data is a current weather, a short term forecast of 40 entries and a
+ * long term forecast, written in the same order as LocationWeather.save().
+ * The serialized form holds the same three objects.  Both are first checked
+ * to read back the same text as they were written with.
+ *
+ * Run with: mvn -Pbenchmark -Dbenchmark=CodecBenchmark test
+ *
+ * @author team15
+ */
+
+//Imports
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import org.json.JSONObject;
+
+public class CodecBenchmark{
+    //Number of calls timed in each round
+    private final static int CALLS = 20000, ROUNDS = 3;
+
+    private static Weather local;
+    private static Forecast shortTerm, longTerm;
+
+    /**
+     * Runs the benchmark
+     * @param args not used
+     * @throws Exception thrown if a record does not read back the same
+     */
+    public static void main(String[] args) throws Exception{
+        build();
+        final byte[] record = encode();
+        final byte[] serialized = serialize();
+        check(decode(record), "codec");
+        check(deserialize(serialized), "serialization");
+        System.out.println("Record: codec " + record.length + " bytes, "
+                           + "serialization " + serialized.length + " bytes");
+
+        for(int r = 0; r < ROUNDS; r++){
+            System.out.println("Round " + (r + 1));
+            ExtractorBenchmark.time("  codec, write        ",
+                                    new ExtractorBenchmark.Call(){
+                public Object run() throws Exception{
+                    return encode();
+                }
+            });
+            ExtractorBenchmark.time("  serialization, write",
+                                    new ExtractorBenchmark.Call(){
+                public Object run() throws Exception{
+                    return serialize();
+                }
+            });
+            ExtractorBenchmark.time("  codec, read         ",
+                                    new ExtractorBenchmark.Call(){
+                public Object run() throws Exception{
+                    return decode(record);
+                }
+            });
+            ExtractorBenchmark.time("  serialization, read ",
+                                    new ExtractorBenchmark.Call(){
+                public Object run() throws Exception{
+                    return deserialize(serialized);
+                }
+            });
+        }
+    }
+
+    /**
+     * Builds the current weather and the two forecasts that are written
+     */
+    static void build(){
+        local = new Weather(new JSONObject(BenchmarkData.current()),
+                            Weather.WeatherType.LOCAL);
+        shortTerm = new Forecast(new JSONObject(BenchmarkData.forecast(40)),
+                                 Weather.WeatherType.SHORTTERM);
+        longTerm = new Forecast(new JSONObject(BenchmarkData.daily(8)),
+                                Weather.WeatherType.LONGTERM);
+    }
+
+    /**
+     * Writes the data with the codec, as LocationWeather.save() does
+     * @return the record
+     */
+    static byte[] encode(){
+        WeatherCodec.Out out = new WeatherCodec.Out();
+        out.putLong(1428451200000L);
+        for(int i = 0; i < 3; i++) PollState.NONE.encode(out);
+        local.encode(out);
+        shortTerm.encode(out);
+        longTerm.encode(out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads the data written by encode()
+     * @param record the record
+     * @return the current weather and the two forecasts
+     * @throws Exception thrown if the record can not be read
+     */
+    static Object[] decode(byte[] record) throws Exception{
+        WeatherCodec.In in = new WeatherCodec.In(record);
+        in.getLong();
+        for(int i = 0; i < 3; i++) PollState.decode(in);
+        return new Object[]{Weather.decode(in), Forecast.decode(in),
+                            Forecast.decode(in)};
+    }
+
+    /**
+     * Writes the data with Java serialization
+     * @return the serialized data
+     * @throws Exception thrown if the data can not be serialized
+     */
+    static byte[] serialize() throws Exception{
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(local);
+        out.writeObject(shortTerm);
+        out.writeObject(longTerm);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads the data written by serialize()
+     * @param data the serialized data
+     * @return the current weather and the two forecasts
+     * @throws Exception thrown if the data can not be read
+     */
+    static Object[] deserialize(byte[] data) throws Exception{
+        ObjectInputStream in = new ObjectInputStream(
+                                            new ByteArrayInputStream(data));
+        try{
+            return new Object[]{in.readObject(), in.readObject(),
+                                in.readObject()};
+        }
+        finally{
+            in.close();
+        }
+    }
+
+    /**
+     * Checks that data read back has the same text as the data written
+     * @param read the current weather and the two forecasts read back
+     * @param name the name of the format, for the error
+     */
+    private static void check(Object[] read, String name){
+        if(!BenchmarkData.text((Weather) read[0]).equals(BenchmarkData.text(local))
+                || !BenchmarkData.text((Forecast) read[1])
+                                .equals(BenchmarkData.text(shortTerm))
+                || !BenchmarkData.text((Forecast) read[2])
+                                .equals(BenchmarkData.text(longTerm)))
+            throw new IllegalStateException(name + " does not read back the "
+                                            + "same data");
+    }
+}
@@ -0,0 +1,106 @@
+package team15.WeatherObjects;
+
+/**
+ * Measures the size against the load time of the compressed cache records
+ * and user files.
+ *
+ * A weather record, made as in CodecBenchmark, is decoded as it is and
+ * inflated and then decoded, and the time the writer thread takes to
+ * deflate it is measured.  user.dat is saved with a few and with many
+ * locations, with and without compression, and loaded.  The user file is
+ * written to the working directory, so the benchmark will not start if
+ * there is a user.dat there already, and deletes it when it is done.
+ *
+ * Run with: mvn -Pbenchmark -Dbenchmark=CompressionBenchmark test
+ *
+ * @author team15
+ */
+
+//Imports
+import java.io.File;
+import team15.JSON.Compression;
+import team15.UserOjects.Location;
+import team15.UserOjects.User;
+
+public class CompressionBenchmark{
+    //Number of user file loads timed in each round
+    private final static int LOADS = 500, ROUNDS = 3;
+
+    /**
+     * Runs the benchmark
+     * @param args not used
+     * @throws Exception thrown if a file can not be written or read back
+     */
+    public static void main(String[] args) throws Exception{
+        File userFile = new File("user.dat");
+        if(userFile.exists())
+            throw new IllegalStateException("Run the benchmark in a directory "
+                                        + "without a user.dat, it is replaced");
+
+        CodecBenchmark.build();
+        final byte[] raw = CodecBenchmark.encode();
+        final byte[] packed = Compression.compress(raw, null);
+        System.out.println();
+        System.out.println("Weather record: raw " + raw.length + " bytes, "
+                           + "compressed " + packed.length + " bytes");
+
+        try{
+            for(int r = 0; r < ROUNDS; r++){
+                System.out.println("Round " + (r + 1));
+                ExtractorBenchmark.time("  record, decode            ",
+                                        new ExtractorBenchmark.Call(){
+                    public Object run() throws Exception{
+                        return CodecBenchmark.decode(raw);
+                    }
+                });
+                ExtractorBenchmark.time("  record, inflate and decode",
+                                        new ExtractorBenchmark.Call(){
+                    public Object run() throws Exception{
+                        return CodecBenchmark.decode(
+                                        Compression.decompress(packed, null));
+                    }
+                });
+                ExtractorBenchmark.time("  record, deflate           ",
+                                        new ExtractorBenchmark.Call(){
+                    public Object run() throws Exception{
+                        return Compression.compress(raw, null);
+                    }
+                });
+                for(int n: new int[]{3, 20}){
+                    user(n, false, userFile);
+                    user(n, true, userFile);
+                }
+            }
+        }
+        finally{
+            userFile.delete();
+            Compression.setEnabled(false);
+        }
+    }
+
+    /**
+     * Saves a user with the given number of locations and times loading it
+     * @param n the number of locations
+     * @param compressed true to save the file compressed
+     * @param f the user file
+     * @throws Exception thrown if the file can not be saved or loaded
+     */
+    private static void user(int n, boolean compressed, File f)
+                                                            throws Exception{
+        User u = new User();
+        for(int i = 0; i < n; i++){
+            u.addLocation(new Location((i % 2 == 0)?"CA":"GB", "Town " + i,
+                                       Integer.toString(6000000 + i*37), ""));
+        }
+        Compression.setEnabled(compressed);
+        u.saveUser();
+
+        String name = String.format("  user.dat, %2d locations, %s", n,
+                                    compressed?"compressed":"raw       ");
+        long start = System.nanoTime();
+        for(int i = 0; i < LOADS; i++) User.loadUser();
+        long took = System.nanoTime() - start;
+        System.out.printf("%s %8.1f us/load %6d B%n", name,
+                          took/1e3/LOADS, f.length());
+    }
+}
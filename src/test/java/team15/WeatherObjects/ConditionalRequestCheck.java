@@ -0,0 +1,234 @@
+package team15.WeatherObjects;
+
+/**
+ * Checks conditional requests against a stub OpenWeather server, pointed to
+ * with the team15.api property.
+ *
+ * The stub tags every response with an ETag and a Last-Modified date, and
+ * answers 304 Not Modified to a request that sends back the ETag of its
+ * current data.  A location is refreshed, saved and loaded back from the
+ * cache, and refreshed again, which must send the validators read from the
+ * cache and keep the cached data on the 304.  The data is then changed, and
+ * the new validators must make the same round trip.
+ *
+ * The check writes to the weather cache in the working directory, and
+ * removes the records it made when it is done.
+ *
+ * Run with: mvn -Pbenchmark -Dbenchmark=ConditionalRequestCheck test
+ *
+ * @author team15
+ */
+
+//Imports
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import team15.UserOjects.Location;
+
+public class ConditionalRequestCheck{
+    //Ids of the location checked and of the record that holds the writer
+    private final static String ID = "999999901", GATE = "999999902";
+    private final static String MODIFIED = "Tue, 07 Apr 2015 20:00:00 GMT";
+
+    //Version of the data the stub serves, and the requests it was sent
+    private static volatile int version = 1;
+    private final static List<String> requests
+                            = Collections.synchronizedList(new ArrayList<String>());
+
+    /**
+     * Runs the check
+     * @param args not used
+     * @throws Exception thrown if a request or the data is not as expected
+     */
+    public static void main(String[] args) throws Exception{
+        HttpServer server = start();
+        new File("WeatherCache").mkdirs();
+        WeatherStore.getDefault().remove(ID);
+        Location loc = new Location("CA", "London", ID, "");
+
+        try{
+            //First refresh, sent without validators
+            LocationWeather first = new LocationWeather(loc, false);
+            refreshAndSave(first);
+            expect("first refresh", "200 - -");
+            String v1 = text(first);
+
+            //Loaded from the cache, the validators must be sent back
+            LocationWeather loaded = new LocationWeather(loc, false);
+            expire(loaded);
+            loaded.updateForecasts();
+            expect("refresh after loading", "304 \"v1\" " + MODIFIED);
+            if(!text(loaded).equals(v1))
+                throw new IllegalStateException("The 304 did not keep the "
+                                                + "cached data");
+
+            //Changed data, and its validators after loading it back
+            version = 2;
+            expire(loaded);
+            refreshAndSave(loaded);
+            expect("refresh of changed data", "200 \"v1\" " + MODIFIED);
+            String v2 = text(loaded);
+            if(v2.equals(v1))
+                throw new IllegalStateException("The changed data was not read");
+
+            LocationWeather reloaded = new LocationWeather(loc, false);
+            expire(reloaded);
+            reloaded.updateForecasts();
+            expect("refresh after loading changed data",
+                   "304 \"v2\" " + MODIFIED);
+            if(!text(reloaded).equals(v2))
+                throw new IllegalStateException("The 304 did not keep the "
+                                                + "changed data");
+
+            System.out.println("Conditional requests are sent and kept");
+        }
+        finally{
+            WeatherWriter.getDefault().flush();
+            WeatherStore.getDefault().remove(ID);
+            WeatherStore.getDefault().remove(GATE);
+            WeatherStore.getDefault().force();
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Starts the stub server and points the program at it
+     * @return the server
+     * @throws IOException thrown if the server can not be started
+     */
+    private static HttpServer start() throws IOException{
+        HttpServer server = HttpServer.create(
+                                    new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler(){
+            public void handle(HttpExchange x) throws IOException{
+                String path = x.getRequestURI().getPath();
+                String tag = x.getRequestHeaders().getFirst("If-None-Match");
+                String since = x.getRequestHeaders().getFirst("If-Modified-Since");
+                String etag = "\"v" + version + "\"";
+                x.getResponseHeaders().add("ETag", etag);
+                x.getResponseHeaders().add("Last-Modified", MODIFIED);
+
+                int status = etag.equals(tag)?304:200;
+                requests.add(status + " " + ((tag == null)?"-":tag) + " "
+                             + ((since == null)?"-":since) + " " + path);
+                if(status == 304){
+                    x.sendResponseHeaders(304, -1);
+                    x.close();
+                    return;
+                }
+
+                byte[] body = body(path).getBytes(StandardCharsets.UTF_8);
+                x.sendResponseHeaders(200, body.length);
+                OutputStream out = x.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        server.start();
+        System.setProperty(LocationWeather.API_PROPERTY, "http://127.0.0.1:"
+                           + server.getAddress().getPort() + "/data/2.5/");
+        return server;
+    }
+
+    /**
+     * Returns the body the stub sends for a request
+     * @param path the path of the request
+     * @return the body of the response, which changes with the version
+     */
+    private static String body(String path){
+        if(path.endsWith("/weather"))
+            return BenchmarkData.current().replace("\"temp\":7.37",
+                                                   "\"temp\":" + (7 + version));
+        String v = "{\"v\":" + version + ",";
+        if(path.endsWith("/daily"))
+            return BenchmarkData.daily(8).replaceFirst("\\{", v);
+        return BenchmarkData.forecast(40).replaceFirst("\\{", v);
+    }
+
+    /**
+     * Refreshes a location and builds its data before the record it saves is
+     * written. The writer is held until then, since it saves data that has
+     * not been built yet without its validators.
+     * @param w the weather of the location
+     * @throws Exception thrown if the writer can not be flushed
+     */
+    private static void refreshAndSave(LocationWeather w) throws Exception{
+        final CountDownLatch hold = new CountDownLatch(1);
+        WeatherWriter.getDefault().save(GATE, new Callable<byte[]>(){
+            public byte[] call() throws Exception{
+                hold.await();
+                return new byte[0];
+            }
+        });
+
+        try{
+            w.updateForecasts();
+            text(w);
+        }
+        finally{
+            hold.countDown();
+        }
+        WeatherWriter.getDefault().flush();
+    }
+
+    /**
+     * Makes every data set of a location due, keeping its validators
+     * @param w the weather of the location
+     * @throws Exception thrown if the poll states can not be reached
+     */
+    private static void expire(LocationWeather w) throws Exception{
+        Field f = LocationWeather.class.getDeclaredField("polls");
+        f.setAccessible(true);
+        synchronized(w){
+            PollState[] p = (PollState[]) f.get(w);
+            for(int i = 0; i < p.length; i++){
+                p[i] = new PollState(0, p[i].hash, p[i].unchanged, p[i].etag,
+                                     p[i].lastModified);
+            }
+        }
+    }
+
+    /**
+     * Checks that the three requests since the last check got the given
+     * status and sent the given validators
+     * @param step the name of the step, for the error
+     * @param expected the status, ETag and Last-Modified sent, with - for
+     * none
+     */
+    private static void expect(String step, String expected){
+        synchronized(requests){
+            if(requests.size() != 3)
+                throw new IllegalStateException(step + ": " + requests.size()
+                                                + " requests, not 3");
+            for(String r: requests){
+                if(!r.startsWith(expected + " "))
+                    throw new IllegalStateException(step + ": " + r);
+            }
+            System.out.println(step + ":");
+            for(String r: requests) System.out.println("  " + r);
+            requests.clear();
+        }
+    }
+
+    /**
+     * Builds the data of a location and returns its text
+     * @param w the weather of the location
+     * @return the text of the current weather and both forecasts
+     */
+    private static String text(LocationWeather w){
+        return BenchmarkData.text(w.getLocal())
+            + BenchmarkData.text(w.getShortTerm())
+            + BenchmarkData.text(w.getLongTerm());
+    }
+}
@@ -0,0 +1,100 @@
+package team15.WeatherObjects;
+
+/**
+ * Compares reading a forecast response with the JSONExtractor against
+ * building the org.json tree of the whole response, for a short term
+ * forecast of 40 entries.
+ *
+ * Both ways are first checked to build the same forecast. Each is then
+ * timed for parsing only, and for parsing and building the Forecast, with
+ * the bytes allocated by each call.
+ *
+ * Run with: mvn -Pbenchmark -Dbenchmark=ExtractorBenchmark test
+ *
+ * @author team15
+ */
+
+//Imports
+import java.io.StringReader;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import team15.JSON.JSONExtractor;
+
+public class ExtractorBenchmark{
+    //Number of calls timed in each round
+    private final static int CALLS = 10000, ROUNDS = 3;
+
+    private static Object sink;
+
+    /**
+     * Runs the benchmark
+     * @param args not used
+     * @throws Exception thrown if the two ways build different forecasts
+     */
+    public static void main(String[] args) throws Exception{
+        final String body = BenchmarkData.forecast(40);
+        final Weather.WeatherType t = Weather.WeatherType.SHORTTERM;
+        final JSONExtractor extractor = Weather.extractor(t);
+
+        String tree = BenchmarkData.text(new Forecast(new JSONObject(body), t));
+        String read = BenchmarkData.text(new Forecast(
+                                extractor.extract(new StringReader(body)), t));
+        if(!tree.equals(read))
+            throw new IllegalStateException("The forecasts are not the same");
+        System.out.println("Short term forecast, 40 entries, " + body.length()
+                           + " bytes");
+
+        for(int r = 0; r < ROUNDS; r++){
+            System.out.println("Round " + (r + 1));
+            time("  org.json tree, parse      ", new Call(){
+                public Object run() throws Exception{
+                    return new JSONObject(new JSONTokener(new StringReader(body)));
+                }
+            });
+            time("  JSONExtractor, parse      ", new Call(){
+                public Object run() throws Exception{
+                    return extractor.extract(new StringReader(body));
+                }
+            });
+            time("  org.json tree, build      ", new Call(){
+                public Object run() throws Exception{
+                    return new Forecast(new JSONObject(new JSONTokener(
+                                                new StringReader(body))), t);
+                }
+            });
+            time("  JSONExtractor, build      ", new Call(){
+                public Object run() throws Exception{
+                    return new Forecast(
+                                extractor.extract(new StringReader(body)), t);
+                }
+            });
+        }
+    }
+
+    /**
+     * One call of the code being timed
+     */
+    static interface Call{
+        /**
+         * Runs the code once
+         * @return the result, which is kept so it is not optimized away
+         * @throws Exception thrown if the code fails
+         */
+        public Object run() throws Exception;
+    }
+
+    /**
+     * Times a call and prints the time and bytes allocated for each call
+     * @param name the name printed for the call
+     * @param c the call
+     * @throws Exception thrown if the call fails
+     */
+    static void time(String name, Call c) throws Exception{
+        long start = System.nanoTime(), bytes = BenchmarkData.allocated();
+        for(int i = 0; i < CALLS; i++) sink = c.run();
+        long took = System.nanoTime() - start;
+        bytes = BenchmarkData.allocated() - bytes;
+        System.out.printf("%s %8.1f us/op %10d B/op%n", name, took/1e3/CALLS,
+                          bytes/CALLS);
+    }
+}